@@ -1,155 +1,2314 @@
 package ECommerce_System;
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.security.spec.KeySpec;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+//================= CUSTOM EXCEPTIONS =================
+class OutOfStockException extends Exception {
+ public OutOfStockException(String message) {
+     super(message);
+ }
+}
+
+class AuthenticationException extends Exception {
+ public AuthenticationException(String message) {
+     super(message);
+ }
+}
+
+//================= ENUMS =================
+enum Role {
+ ADMIN,
+ CUSTOMER
+}
+
+enum Category {
+ ELECTRONICS,
+ FASHION,
+ HOME,
+ BOOKS,
+ GROCERY
+}
+
+//================= PRICE SNAPSHOT =================
+// Immutable; final price is computed once per price/discount change
+record PriceSnapshot(double price, double discount, double finalPrice) {
+ static PriceSnapshot of(double price, double discount) {
+     return new PriceSnapshot(price, discount, price - (price * discount / 100));
+ }
+}
+
+//================= TEXT BLOCK =================
+// Many strings stored back to back as UTF-8 in one byte array (a snapshot
+// block points straight into the file's bytes), with an offset table; an
+// entry is only turned into a String when it is read
+final class TextBlock {
+ private final byte[] bytes;
+ private final int[] offsets; // entry i spans bytes[offsets[i]..offsets[i + 1])
+
+ TextBlock(byte[] bytes, int[] offsets) {
+     this.bytes = bytes;
+     this.offsets = offsets;
+ }
+
+ public int size() { return offsets.length - 1; }
+
+ public String get(int i) {
+     return new String(bytes, offsets[i], offsets[i + 1] - offsets[i], StandardCharsets.UTF_8);
+ }
+}
+
+//================= PRODUCT CLASS =================
+class Product {
+ static final int TEXT_FIELDS = 4; // name, brand, description, seller
+
+ private int id;
+ // Null until first read when the product was loaded from a snapshot
+ private String name;
+ private String brand;
+ private String description;
+ private String seller;
+ private TextBlock text;
+ private int textAt;
+ private Category category;
+ private volatile PriceSnapshot pricing;
+ private volatile double rating;
+ private final AtomicInteger stock;
+
+ // Cell of the columnar catalog's stock column, once the product is in it
+ private volatile AtomicIntegerArray stockColumn;
+ private int stockCell; // published by the stockColumn write
+
+ // Rendered listing plus the state it was rendered from; reused until
+ // price, discount, rating or stock no longer match
+ private record Listing(PriceSnapshot pricing, double rating, int stock, String text) {}
+ private volatile Listing listing;
+
+ public Product(int id, String name, String brand, String description,
+                Category category, double price, double discount,
+                double rating, int stock, String seller) {
+     this.id = id;
+     this.name = name;
+     this.brand = brand;
+     this.description = description;
+     this.category = category;
+     this.pricing = PriceSnapshot.of(price, discount);
+     this.rating = rating;
+     this.stock = new AtomicInteger(stock);
+     this.seller = seller;
+ }
+
+ // Snapshot rows: the text fields stay undecoded in the block (entries
+ // row * TEXT_FIELDS onwards) until a getter asks for them
+ Product(int id, TextBlock text, int row, Category category, double price,
+         double discount, double rating, int stock) {
+     this.id = id;
+     this.text = text;
+     this.textAt = row * TEXT_FIELDS;
+     this.category = category;
+     this.pricing = PriceSnapshot.of(price, discount);
+     this.rating = rating;
+     this.stock = new AtomicInteger(stock);
+ }
+
+ public int getId() { return id; }
+
+ // Decoding twice in a race is harmless: both threads get equal strings
+ public String getName() {
+     String s = name;
+     if (s == null && text != null) name = s = text.get(textAt);
+     return s;
+ }
+
+ public String getBrand() {
+     String s = brand;
+     if (s == null && text != null) brand = s = text.get(textAt + 1);
+     return s;
+ }
+
+ public String getDescription() {
+     String s = description;
+     if (s == null && text != null) description = s = text.get(textAt + 2);
+     return s;
+ }
+
+ public String getSeller() {
+     String s = seller;
+     if (s == null && text != null) seller = s = text.get(textAt + 3);
+     return s;
+ }
+
+ public Category getCategory() { return category; }
+ public PriceSnapshot getPricing() { return pricing; }
+ public double getPrice() { return pricing.price(); }
+ public double getDiscount() { return pricing.discount(); }
+ public double getRating() { return rating; }
+ public int getStock() { return stock.get(); }
+
+ public void setRating(double rating) {
+     this.rating = rating;
+ }
+
+ public void setPricing(double price, double discount) {
+     this.pricing = PriceSnapshot.of(price, discount);
+ }
+
+ public double getFinalPrice() {
+     return pricing.finalPrice();
+ }
+
+ // Lock-free: CAS loop so concurrent buyers can never take more than is left
+ private boolean tryTakeStock(int quantity) {
+     while (true) {
+         int current = stock.get();
+         if (quantity > current) {
+             return false;
+         }
+         if (stock.compareAndSet(current, current - quantity)) {
+             publishStock();
+             return true;
+         }
+     }
+ }
+
+ void returnStock(int quantity) {
+     stock.addAndGet(quantity);
+     publishStock();
+ }
+
+ void mirrorStockTo(AtomicIntegerArray column, int cell) {
+     this.stockCell = cell;
+     this.stockColumn = column;
+     publishStock();
+ }
+
+ // Copies stock into the column cell, repeating until the two agree, so
+ // a writer that raced ahead can never be overwritten by an older value
+ private void publishStock() {
+     AtomicIntegerArray column = stockColumn;
+     if (column == null) return;
+     int current;
+     do {
+         current = stock.get();
+         column.set(stockCell, current);
+     } while (stock.get() != current);
+ }
+
+ public void reduceStock(int quantity) throws OutOfStockException {
+     if (quantity <= 0) {
+         throw new IllegalArgumentException("Quantity must be positive");
+     }
+     if (!tryTakeStock(quantity)) {
+         throw new OutOfStockException("Only " + stock.get() + " items left!");
+     }
+ }
+
+ // Holds stock until commit() or release(); returned automatically after ttl
+ public StockReservation reserve(int quantity, long ttlMillis) throws OutOfStockException {
+     reduceStock(quantity);
+     return StockReservation.hold(this, quantity, ttlMillis);
+ }
+
+ @Override
+ public String toString() {
+     PriceSnapshot p = pricing;
+     double r = rating;
+     int s = stock.get();
+
+     Listing cached = listing;
+     if (cached != null && cached.pricing() == p && cached.rating() == r && cached.stock() == s) {
+         return cached.text();
+     }
+
+     String text = "\n----------------------------------" +
+             "\nID: " + id +
+             "\nName: " + getName() +
+             "\nBrand: " + getBrand() +
+             "\nCategory: " + category +
+             "\nSeller: " + getSeller() +
+             "\nRating: ⭐ " + r +
+             "\nOriginal Price: ₹" + p.price() +
+             "\nDiscount: " + p.discount() + "%" +
+             "\nFinal Price: ₹" + p.finalPrice() +
+             "\nStock Left: " + s +
+             "\nDescription: " + getDescription() +
+             "\n----------------------------------";
+     listing = new Listing(p, r, s, text);
+     return text;
+ }
+}
+
+//================= STOCK RESERVATION =================
+class StockReservation implements Delayed {
+
+ enum State { HELD, COMMITTED, RELEASED }
+
+ // Expired holds are handed back to inventory by a single daemon reaper.
+ // Settled holds stay queued until their deadline (release() is then a
+ // no-op) so commit/release never pay for an O(n) queue removal.
+ private static final DelayQueue<StockReservation> PENDING = new DelayQueue<>();
+
+ static {
+     Thread reaper = new Thread(() -> {
+         while (true) {
+             try {
+                 PENDING.take().release();
+             } catch (InterruptedException e) {
+                 return;
+             }
+         }
+     }, "stock-reservation-reaper");
+     reaper.setDaemon(true);
+     reaper.start();
+ }
+
+ private final Product product;
+ private final int quantity;
+ private final double unitPrice; // price is locked in with the stock
+ private final long expiresAt;
+ private final AtomicReference<State> state = new AtomicReference<>(State.HELD);
+
+ private StockReservation(Product product, int quantity, long expiresAt) {
+     this.product = product;
+     this.quantity = quantity;
+     this.unitPrice = product.getFinalPrice();
+     this.expiresAt = expiresAt;
+ }
+
+ static StockReservation hold(Product product, int quantity, long ttlMillis) {
+     StockReservation reservation = new StockReservation(
+             product, quantity, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ttlMillis));
+     PENDING.add(reservation);
+     return reservation;
+ }
+
+ public Product getProduct() { return product; }
+ public int getQuantity() { return quantity; }
+ public double getAmount() { return unitPrice * quantity; }
+ public State getState() { return state.get(); }
+
+ // Stock stays taken; fails if the hold was already released or expired
+ public boolean commit() {
+     return state.compareAndSet(State.HELD, State.COMMITTED);
+ }
+
+ public boolean release() {
+     if (state.compareAndSet(State.HELD, State.RELEASED)) {
+         product.returnStock(quantity);
+         return true;
+     }
+     return false;
+ }
+
+ @Override
+ public long getDelay(TimeUnit unit) {
+     return unit.convert(expiresAt - System.nanoTime(), TimeUnit.NANOSECONDS);
+ }
+
+ @Override
+ public int compareTo(Delayed other) {
+     return Long.compare(expiresAt, ((StockReservation) other).expiresAt);
+ }
+}
+
+//================= INT -> INT HASH MAP =================
+// Open-addressing map (linear probing) with primitive keys and values,
+// so cart lines cost two array slots instead of boxed map entries.
+class IntIntHashMap {
+
+ interface Entry {
+     void accept(int key, int value);
+ }
+
+ private static final int EMPTY = Integer.MIN_VALUE;
+
+ private int[] keys;
+ private int[] values;
+ private int size;
+ private int mask;
+
+ public IntIntHashMap(int expectedSize) {
+     int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+     allocate(capacity);
+ }
+
+ private void allocate(int capacity) {
+     keys = new int[capacity];
+     values = new int[capacity];
+     Arrays.fill(keys, EMPTY);
+     mask = capacity - 1;
+ }
+
+ private int slot(int key) {
+     int h = key * 0x9E3779B9;
+     return (h ^ (h >>> 16)) & mask;
+ }
+
+ public int size() { return size; }
+ public boolean isEmpty() { return size == 0; }
+
+ // Returns 0 when the key is absent
+ public int get(int key) {
+     for (int i = slot(key); keys[i] != EMPTY; i = (i + 1) & mask) {
+         if (keys[i] == key) {
+             return values[i];
+         }
+     }
+     return 0;
+ }
+
+ // Adds delta to the key's value (inserting it if absent) and returns the new value
+ public int addTo(int key, int delta) {
+     if (key == EMPTY) {
+         throw new IllegalArgumentException("Unsupported key");
+     }
+     int i = slot(key);
+     while (keys[i] != EMPTY) {
+         if (keys[i] == key) {
+             return values[i] += delta;
+         }
+         i = (i + 1) & mask;
+     }
+     keys[i] = key;
+     values[i] = delta;
+     if (++size * 2 > keys.length) {
+         rehash();
+     }
+     return delta;
+ }
+
+ // Returns the removed value, or 0 when the key is absent
+ public int remove(int key) {
+     int i = slot(key);
+     while (keys[i] != key) {
+         if (keys[i] == EMPTY) {
+             return 0;
+         }
+         i = (i + 1) & mask;
+     }
+     int removed = values[i];
+
+     // Backward-shift deletion keeps probe chains intact without tombstones
+     int gap = i;
+     for (int j = (gap + 1) & mask; keys[j] != EMPTY; j = (j + 1) & mask) {
+         int home = slot(keys[j]);
+         if (((j - home) & mask) >= ((j - gap) & mask)) {
+             keys[gap] = keys[j];
+             values[gap] = values[j];
+             gap = j;
+         }
+     }
+     keys[gap] = EMPTY;
+     size--;
+     return removed;
+ }
+
+ public void clear() {
+     Arrays.fill(keys, EMPTY);
+     size = 0;
+ }
+
+ public void forEach(Entry action) {
+     for (int i = 0; i < keys.length; i++) {
+         if (keys[i] != EMPTY) {
+             action.accept(keys[i], values[i]);
+         }
+     }
+ }
+
+ private void rehash() {
+     int[] oldKeys = keys;
+     int[] oldValues = values;
+     allocate(oldKeys.length * 2);
+     size = 0;
+     for (int i = 0; i < oldKeys.length; i++) {
+         if (oldKeys[i] != EMPTY) {
+             addTo(oldKeys[i], oldValues[i]);
+         }
+     }
+ }
+}
+
+//================= CART CLASS =================
+// One line per product id holding the stock reservations behind it. A
+// line's quantity and amount are only ever summed from its reservations,
+// and the running totals keep add/remove O(1) and checkout off the lines.
+class Cart {
+
+ interface Line {
+     void accept(int productId, int quantity, double amount);
+ }
+
+ private static final class LineItem {
+     final int productId;
+     int quantity;
+     double amount;
+     StockReservation[] held = new StockReservation[2];
+     int count;
+
+     LineItem(int productId) {
+         this.productId = productId;
+     }
+
+     void add(StockReservation reservation) {
+         if (count == held.length) {
+             held = Arrays.copyOf(held, count * 2);
+         }
+         held[count++] = reservation;
+         quantity += reservation.getQuantity();
+         amount += reservation.getAmount();
+     }
+ }
+
+ // product id -> index into lines + 1, so a missing id reads as 0
+ private final IntIntHashMap slots = new IntIntHashMap(8);
+ private LineItem[] lines = new LineItem[4];
+ private int lineCount;
+ private double total;
+ private int itemCount;
+
+ private LineItem line(int productId) {
+     int slot = slots.get(productId);
+     return slot == 0 ? null : lines[slot - 1];
+ }
+
+ public void add(StockReservation reservation) {
+     int id = reservation.getProduct().getId();
+     LineItem line = line(id);
+     if (line == null) {
+         if (lineCount == lines.length) {
+             lines = Arrays.copyOf(lines, lineCount * 2);
+         }
+         line = new LineItem(id);
+         lines[lineCount++] = line;
+         slots.addTo(id, lineCount);
+     }
+     line.add(reservation);
+     total += reservation.getAmount();
+     itemCount += reservation.getQuantity();
+ }
+
+ // Drops the whole line, hands its held stock back and returns its quantity
+ public int remove(int productId) {
+     int slot = slots.remove(productId);
+     if (slot == 0) {
+         return 0;
+     }
+     LineItem line = lines[slot - 1];
+     LineItem last = lines[--lineCount];
+     lines[lineCount] = null;
+     if (last != line) {
+         lines[slot - 1] = last;
+         slots.addTo(last.productId, slot - (lineCount + 1));
+     }
+     for (int i = 0; i < line.count; i++) {
+         line.held[i].release();
+     }
+     total -= line.amount;
+     itemCount -= line.quantity;
+     return line.quantity;
+ }
+
+ public int getQuantity(int productId) {
+     LineItem line = line(productId);
+     return line == null ? 0 : line.quantity;
+ }
+
+ // Amount for one line at the prices locked in when it was added
+ public double getLineAmount(int productId) {
+     LineItem line = line(productId);
+     return line == null ? 0 : line.amount;
+ }
+
+ public double getTotal() { return total; }
+ public int getItemCount() { return itemCount; }
+ public int getLineCount() { return lineCount; }
+ public boolean isEmpty() { return lineCount == 0; }
+
+ public void forEach(Line action) {
+     for (int i = 0; i < lineCount; i++) {
+         LineItem line = lines[i];
+         action.accept(line.productId, line.quantity, line.amount);
+     }
+ }
+
+ // Commits every held reservation; holds that already expired are
+ // taken from stock again, and everything is rolled back if one fails
+ public void commitReservations() throws OutOfStockException {
+     List<StockReservation> done = new ArrayList<>(itemCount);
+     for (int i = 0; i < lineCount; i++) {
+         LineItem line = lines[i];
+         for (int j = 0; j < line.count; j++) {
+             StockReservation r = line.held[j];
+             if (!r.commit()) {
+                 try {
+                     r.getProduct().reduceStock(r.getQuantity());
+                 } catch (OutOfStockException e) {
+                     done.forEach(d -> d.getProduct().returnStock(d.getQuantity()));
+                     throw new OutOfStockException(r.getProduct().getName() + ": " + e.getMessage());
+                 }
+             }
+             done.add(r);
+         }
+     }
+ }
+
+ // Undoes a successful commitReservations() when the order cannot be stored
+ public void returnCommittedStock() {
+     for (int i = 0; i < lineCount; i++) {
+         LineItem line = lines[i];
+         for (int j = 0; j < line.count; j++) {
+             line.held[j].getProduct().returnStock(line.held[j].getQuantity());
+         }
+     }
+ }
+
+ public void clear() {
+     Arrays.fill(lines, 0, lineCount, null);
+     slots.clear();
+     lineCount = 0;
+     total = 0;
+     itemCount = 0;
+ }
+}
+
+//================= USER CLASS =================
+class User {
+ private String username;
+ private PasswordHasher.Hash password;
+ private Role role;
+ private Cart cart = new Cart();
+
+ public User(String username, String password, Role role) {
+     this(username, PasswordHasher.hash(password), role);
+ }
+
+ public User(String username, PasswordHasher.Hash password, Role role) {
+     this.username = username;
+     this.password = password;
+     this.role = role;
+ }
+
+ public String getUsername() { return username; }
+ public Role getRole() { return role; }
+
+ // Slow on purpose (PBKDF2); call from the session verifier pool
+ public boolean authenticate(String password) {
+     return PasswordHasher.verify(password, this.password);
+ }
+
+ public Cart getCart() { return cart; }
+
+ public void addToCart(StockReservation reservation) {
+     cart.add(reservation);
+ }
+
+ // Drops the line and hands its held stock back immediately
+ public int removeFromCart(Product product) {
+     return cart.remove(product.getId());
+ }
+
+ public void commitReservations() throws OutOfStockException {
+     cart.commitReservations();
+ }
+
+ public void returnCommittedStock() {
+     cart.returnCommittedStock();
+ }
+
+ public void clearCart() {
+     cart.clear();
+ }
+}
+
+//================= ORDER =================
+record Order(long id, String username, double total, int items, long placedAtMillis) {
+ @Override
+ public String toString() {
+     return "Order #" + id + " placed | Total: ₹" + total + " | Items: " + items;
+ }
+}
+
+//================= ORDER LOG =================
+// Append-only binary order log on disk. Record layout:
+// [int length][long id][double total][int items][long placedAt][short nameLen][name]
+// Only per-user record offsets live on the heap; history pages are read
+// back through a memory-mapped view of the file.
+class OrderLog implements Closeable {
+
+ private static final int HEADER = Integer.BYTES;
+ private static final int FIXED_BODY = Long.BYTES + Double.BYTES + Integer.BYTES + Long.BYTES + Short.BYTES;
+ private static final int MAX_RECORD = HEADER + FIXED_BODY + Short.MAX_VALUE;
+ private static final long MAX_WINDOW = 1 << 20; // largest mapping made by readPage
+
+ // Growable long[] so offsets are not boxed
+ private static class Offsets {
+     long[] values = new long[4];
+     int size;
+
+     void add(long offset) {
+         if (size == values.length) {
+             values = Arrays.copyOf(values, size * 2);
+         }
+         values[size++] = offset;
+     }
+ }
+
+ private final FileChannel channel;
+ private final Map<String, Offsets> index = new HashMap<>();
+ private long end;
+ private long count;
+ private long lastOrderId;
+
+ public OrderLog(Path file) throws IOException {
+     channel = FileChannel.open(file, StandardOpenOption.CREATE,
+             StandardOpenOption.READ, StandardOpenOption.WRITE);
+     recover();
+ }
+
+ // Rebuilds the offset index; a torn record at the tail is truncated
+ private void recover() throws IOException {
+     long size = channel.size();
+     // Not closed: closing the stream would close the channel
+     DataInputStream in = new DataInputStream(new BufferedInputStream(
+             Channels.newInputStream(channel.position(0)), 1 << 16));
+     long pos = 0;
+     while (pos + HEADER <= size) {
+         int length = in.readInt();
+         if (length < FIXED_BODY || pos + HEADER + length > size) {
+             break;
+         }
+         long id = in.readLong();
+         in.readDouble();
+         in.readInt();
+         in.readLong();
+         byte[] name = new byte[in.readShort()];
+         in.readFully(name);
+
+         index.computeIfAbsent(new String(name, StandardCharsets.UTF_8), k -> new Offsets()).add(pos);
+         lastOrderId = Math.max(lastOrderId, id);
+         count++;
+         pos += HEADER + length;
+     }
+     end = pos;
+     if (end < size) {
+         channel.truncate(end);
+     }
+ }
+
+ public synchronized long lastOrderId() { return lastOrderId; }
+ public synchronized long size() { return count; }
+
+ public synchronized int countFor(String username) {
+     Offsets offsets = index.get(username);
+     return offsets == null ? 0 : offsets.size;
+ }
+
+ // One write and one force per batch (group commit)
+ public synchronized void appendAll(List<Order> batch) throws IOException {
+     if (batch.isEmpty()) return;
+
+     List<byte[]> names = new ArrayList<>(batch.size());
+     int bytes = 0;
+     for (Order order : batch) {
+         byte[] name = order.username().getBytes(StandardCharsets.UTF_8);
+         names.add(name);
+         bytes += HEADER + FIXED_BODY + name.length;
+     }
+
+     ByteBuffer buffer = ByteBuffer.allocate(bytes);
+     long[] offsets = new long[batch.size()];
+     for (int i = 0; i < batch.size(); i++) {
+         Order order = batch.get(i);
+         byte[] name = names.get(i);
+         offsets[i] = end + buffer.position();
+         buffer.putInt(FIXED_BODY + name.length)
+               .putLong(order.id())
+               .putDouble(order.total())
+               .putInt(order.items())
+               .putLong(order.placedAtMillis())
+               .putShort((short) name.length)
+               .put(name);
+     }
+     buffer.flip();
+
+     long pos = end;
+     while (buffer.hasRemaining()) {
+         pos += channel.write(buffer, pos);
+     }
+     channel.force(false);
+
+     for (int i = 0; i < batch.size(); i++) {
+         Order order = batch.get(i);
+         index.computeIfAbsent(order.username(), k -> new Offsets()).add(offsets[i]);
+         lastOrderId = Math.max(lastOrderId, order.id());
+     }
+     end = pos;
+     count += batch.size();
+ }
+
+ // Page is 1-based, oldest first. A user's records are spread through the
+ // file, so they are mapped in windows of at most MAX_WINDOW bytes rather
+ // than as one span (a span past 2 GB cannot be mapped at all).
+ public List<Order> readPage(String username, int page, int pageSize) throws IOException {
+     long[] offsets;
+     long fileEnd;
+     synchronized (this) {
+         Offsets all = index.get(username);
+         int from = (page - 1) * pageSize;
+         if (all == null || page < 1 || from >= all.size) {
+             return new ArrayList<>();
+         }
+         offsets = Arrays.copyOfRange(all.values, from, Math.min(all.size, from + pageSize));
+         fileEnd = end;
+     }
+
+     List<Order> orders = new ArrayList<>(offsets.length);
+     int i = 0;
+     while (i < offsets.length) {
+         long start = offsets[i];
+         int last = i;
+         while (last + 1 < offsets.length && offsets[last + 1] - start < MAX_WINDOW) {
+             last++;
+         }
+         long windowEnd = Math.min(fileEnd, offsets[last] + MAX_RECORD);
+         MappedByteBuffer view = channel.map(FileChannel.MapMode.READ_ONLY, start, windowEnd - start);
+
+         for (; i <= last; i++) {
+             view.position((int) (offsets[i] - start) + HEADER);
+             long id = view.getLong();
+             double total = view.getDouble();
+             int items = view.getInt();
+             long placedAt = view.getLong();
+             orders.add(new Order(id, username, total, items, placedAt));
+         }
+     }
+     return orders;
+ }
+
+ @Override
+ public synchronized void close() throws IOException {
+     channel.close();
+ }
+}
+
+//================= CHECKOUT PIPELINE =================
+// Checkouts go into a bounded queue; a single stage thread drains them
+// in batches, commits stock, numbers orders and stores them in one write.
+class CheckoutPipeline {
+
+ private static class Request {
+     final User user;
+     final long enqueuedAt = System.nanoTime();
+     final CompletableFuture<Order> result = new CompletableFuture<>();
+
+     Request(User user) {
+         this.user = user;
+     }
+ }
+
+ private static final int LATENCY_SAMPLES = 4096;
+
+ private final BlockingQueue<Request> queue;
+ private final OrderLog store;
+ private final int batchSize;
+ private final Thread stage;
+ private long nextOrderId; // only touched by the stage thread
+
+ // Metrics, guarded by this
+ private final long[] latencies = new long[LATENCY_SAMPLES];
+ private long completed;
+ private long failed;
+ private long batches;
+ private long firstSubmitAt;
+
+ public CheckoutPipeline(OrderLog store, int capacity, int batchSize) {
+     this.store = store;
+     this.nextOrderId = store.lastOrderId() + 1;
+     this.queue = new ArrayBlockingQueue<>(capacity);
+     this.batchSize = batchSize;
+
+     stage = new Thread(this::run, "checkout-stage");
+     stage.setDaemon(true);
+     stage.start();
+ }
+
+ public void shutdown() {
+     stage.interrupt();
+ }
+
+ // Fails fast with RejectedExecutionException when the queue is full
+ public CompletableFuture<Order> submit(User user) {
+     Request request = new Request(user);
+     synchronized (this) {
+         if (firstSubmitAt == 0) {
+             firstSubmitAt = request.enqueuedAt;
+         }
+     }
+     if (!queue.offer(request)) {
+         request.result.completeExceptionally(
+                 new RejectedExecutionException("Checkout is busy, please try again."));
+     }
+     return request.result;
+ }
+
+ private void run() {
+     List<Request> batch = new ArrayList<>(batchSize);
+     while (true) {
+         try {
+             batch.add(queue.take());
+         } catch (InterruptedException e) {
+             return;
+         }
+         queue.drainTo(batch, batchSize - 1);
+         process(batch);
+         batch.clear();
+     }
+ }
+
+ private void process(List<Request> batch) {
+     List<Request> accepted = new ArrayList<>(batch.size());
+     List<Order> placed = new ArrayList<>(batch.size());
+
+     for (Request r : batch) {
+         Cart cart = r.user.getCart();
+         if (cart.isEmpty()) {
+             fail(r, new IllegalStateException("Cart is empty."));
+             continue;
+         }
+         try {
+             r.user.commitReservations();
+         } catch (OutOfStockException e) {
+             fail(r, e);
+             continue;
+         }
+
+         placed.add(new Order(nextOrderId++, r.user.getUsername(),
+                 cart.getTotal(), cart.getItemCount(), System.currentTimeMillis()));
+         accepted.add(r);
+     }
+
+     try {
+         store.appendAll(placed);
+     } catch (IOException e) {
+         nextOrderId -= placed.size();
+         for (Request r : accepted) {
+             r.user.returnCommittedStock();
+             fail(r, new UncheckedIOException("Could not save order", e));
+         }
+         return;
+     }
+
+     for (int i = 0; i < accepted.size(); i++) {
+         Request r = accepted.get(i);
+         Order order = placed.get(i);
+         r.user.clearCart();
+         record(System.nanoTime() - r.enqueuedAt);
+         r.result.complete(order);
+     }
+
+     synchronized (this) {
+         batches++;
+     }
+ }
+
+ private void fail(Request r, Exception e) {
+     synchronized (this) {
+         failed++;
+     }
+     r.result.completeExceptionally(e);
+ }
+
+ private synchronized void record(long latencyNanos) {
+     latencies[(int) (completed % LATENCY_SAMPLES)] = latencyNanos;
+     completed++;
+ }
+
+ public synchronized long getCompleted() { return completed; }
+ public synchronized long getFailed() { return failed; }
+
+ public synchronized double throughputPerSecond() {
+     if (completed == 0) return 0;
+     return completed / ((System.nanoTime() - firstSubmitAt) / 1e9);
+ }
+
+ // Percentile over the most recent LATENCY_SAMPLES checkouts, in millis
+ public synchronized double latencyPercentileMillis(double percentile) {
+     int n = (int) Math.min(completed, LATENCY_SAMPLES);
+     if (n == 0) return 0;
+     long[] sorted = Arrays.copyOf(latencies, n);
+     Arrays.sort(sorted);
+     int index = (int) Math.ceil(percentile / 100.0 * n) - 1;
+     return sorted[Math.max(0, index)] / 1e6;
+ }
+
+ public void printStats() {
+     long done, bad, batchCount;
+     synchronized (this) {
+         done = completed;
+         bad = failed;
+         batchCount = batches;
+     }
+     System.out.println("Checkout pipeline | completed: " + done + " | failed: " + bad
+             + " | batches: " + batchCount + " | queued: " + queue.size());
+     System.out.printf("Throughput: %.0f orders/sec | p50: %.2f ms | p99: %.2f ms%n",
+             throughputPerSecond(), latencyPercentileMillis(50), latencyPercentileMillis(99));
+ }
+}
+
+//================= PASSWORD HASHER =================
+// Salted PBKDF2 so a leaked user table cannot be reversed cheaply
+class PasswordHasher {
+
+ static final class Hash {
+     private final byte[] salt;
+     private final byte[] digest;
+
+     Hash(byte[] salt, byte[] digest) {
+         this.salt = salt;
+         this.digest = digest;
+     }
+ }
+
+ private static final int ITERATIONS = 10_000;
+ private static final int KEY_BITS = 256;
+ private static final SecureRandom RANDOM = new SecureRandom();
+
+ public static Hash hash(String password) {
+     byte[] salt = new byte[16];
+     RANDOM.nextBytes(salt);
+     return new Hash(salt, derive(password, salt));
+ }
+
+ public static boolean verify(String password, Hash stored) {
+     return MessageDigest.isEqual(derive(password, stored.salt), stored.digest);
+ }
+
+ private static byte[] derive(String password, byte[] salt) {
+     try {
+         KeySpec spec = new PBEKeySpec(password.toCharArray(), salt, ITERATIONS, KEY_BITS);
+         return SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256").generateSecret(spec).getEncoded();
+     } catch (Exception e) {
+         throw new RuntimeException(e);
+     }
+ }
+}
+
+//================= SESSION SERVICE =================
+// Token sessions in a concurrent map with sliding TTL. Password checks
+// run on a small bounded pool so a login storm queues (or is rejected)
+// there instead of starving the threads serving catalog reads.
+class SessionService {
+
+ static final class Session {
+     private final String token;
+     private final User user;
+     private volatile long expiresAt;
+
+     Session(String token, User user, long expiresAt) {
+         this.token = token;
+         this.user = user;
+         this.expiresAt = expiresAt;
+     }
+
+     public String getToken() { return token; }
+     public User getUser() { return user; }
+ }
+
+ // Unknown usernames are verified against this so timing does not reveal them
+ private static final PasswordHasher.Hash DUMMY = PasswordHasher.hash("dummy");
+
+ private final Map<String, User> users;
+ private final ConcurrentHashMap<String, Session> sessions = new ConcurrentHashMap<>();
+ private final long ttlMillis;
+ private final ThreadPoolExecutor verifier;
+ private final SecureRandom random = new SecureRandom();
+
+ public SessionService(Map<String, User> users, long ttlMillis, int verifierThreads, int maxPendingLogins) {
+     this.users = users;
+     this.ttlMillis = ttlMillis;
+     this.verifier = new ThreadPoolExecutor(verifierThreads, verifierThreads, 0, TimeUnit.MILLISECONDS,
+             new ArrayBlockingQueue<>(maxPendingLogins), daemon("login-verifier"));
+
+     ScheduledExecutorService evictor = Executors.newSingleThreadScheduledExecutor(daemon("session-evictor"));
+     long period = Math.max(1000, ttlMillis / 4);
+     evictor.scheduleAtFixedRate(this::evictExpired, period, period, TimeUnit.MILLISECONDS);
+ }
+
+ private static ThreadFactory daemon(String name) {
+     AtomicInteger n = new AtomicInteger();
+     return r -> {
+         Thread t = new Thread(r, name + "-" + n.incrementAndGet());
+         t.setDaemon(true);
+         return t;
+     };
+ }
+
+ // Fails with AuthenticationException, or RejectedExecutionException when the pool is saturated
+ public CompletableFuture<Session> login(String username, String password) {
+     try {
+         return CompletableFuture.supplyAsync(() -> {
+             User user = users.get(username);
+             if (user == null) {
+                 PasswordHasher.verify(password, DUMMY);
+                 throw new CompletionException(new AuthenticationException("Invalid credentials!"));
+             }
+             if (!user.authenticate(password)) {
+                 throw new CompletionException(new AuthenticationException("Invalid credentials!"));
+             }
+             return createSession(user);
+         }, verifier);
+     } catch (RejectedExecutionException e) {
+         return CompletableFuture.failedFuture(
+                 new RejectedExecutionException("Too many login attempts, please try again."));
+     }
+ }
+
+ private Session createSession(User user) {
+     byte[] bytes = new byte[32];
+     random.nextBytes(bytes);
+     String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+     Session session = new Session(token, user, System.currentTimeMillis() + ttlMillis);
+     sessions.put(token, session);
+     return session;
+ }
+
+ // Returns the live session and extends it, or null if missing/expired
+ public Session validate(String token) {
+     Session session = sessions.get(token);
+     if (session == null) {
+         return null;
+     }
+     long now = System.currentTimeMillis();
+     if (session.expiresAt <= now) {
+         sessions.remove(token, session);
+         return null;
+     }
+     session.expiresAt = now + ttlMillis;
+     return session;
+ }
+
+ public void logout(String token) {
+     sessions.remove(token);
+ }
+
+ public int evictExpired() {
+     long now = System.currentTimeMillis();
+     int before = sessions.size();
+     sessions.values().removeIf(s -> s.expiresAt <= now);
+     return before - sessions.size();
+ }
+
+ public int activeSessions() {
+     return sessions.size();
+ }
+}
+
+//================= PRODUCT SEARCH INDEX =================
+// Inverted index over name, brand, description and seller tokens,
+// plus per-category posting lists. Updated incrementally on add.
+// Term postings are sorted int[] id lists rather than boxed sets.
+// Postings loaded from a snapshot stay in a read-only segment; later
+// adds go to the tree and queries merge the two.
+// Queries share a read lock; adds take the write lock.
+class ProductSearchIndex {
+
+ private static final int BULK_CHUNK = 4096;
+
+ // Sorted, duplicate-free product ids of one term
+ private static final class IdList {
+     static final IdList EMPTY = new IdList();
+
+     int[] ids;
+     int size;
+
+     IdList() {
+         ids = new int[2];
+     }
+
+     // Takes ownership of an already sorted, duplicate-free array
+     IdList(int[] sorted) {
+         ids = sorted.length > 0 ? sorted : new int[2];
+         size = sorted.length;
+     }
+
+     // New ids are usually the largest so far, making this an append
+     void add(int id) {
+         if (size == 0 || ids[size - 1] < id) {
+             append(id);
+             return;
+         }
+         int at = Arrays.binarySearch(ids, 0, size, id);
+         if (at >= 0) return;
+         at = -at - 1;
+         append(0);
+         System.arraycopy(ids, at, ids, at + 1, size - 1 - at);
+         ids[at] = id;
+     }
+
+     // Bulk path: unordered append, then one normalize() per list
+     void append(int id) {
+         if (size == ids.length) {
+             ids = Arrays.copyOf(ids, size * 2);
+         }
+         ids[size++] = id;
+     }
+
+     void normalize() {
+         Arrays.sort(ids, 0, size);
+         int unique = 0;
+         for (int i = 0; i < size; i++) {
+             if (unique == 0 || ids[unique - 1] != ids[i]) {
+                 ids[unique++] = ids[i];
+             }
+         }
+         size = unique;
+     }
+
+     void addAll(IdList other) {
+         for (int i = 0; i < other.size; i++) {
+             append(other.ids[i]);
+         }
+         normalize();
+     }
+
+     boolean contains(int id) {
+         return Arrays.binarySearch(ids, 0, size, id) >= 0;
+     }
+ }
+
+ // Term postings as saved in a snapshot: the terms in term order in one
+ // text block and every term's ids in one shared buffer (a view of the
+ // file's bytes). Terms are decoded as lookups touch them, so installing
+ // a segment costs nothing per term.
+ static final class Segment {
+     static final Segment EMPTY = new Segment(new TextBlock(new byte[0], new int[1]), new int[1], IntBuffer.allocate(0));
+
+     final TextBlock terms;
+     final int[] starts; // term i's sorted ids are ids[starts[i]..starts[i + 1])
+     final IntBuffer ids;
+     private final String[] decoded;
+
+     Segment(TextBlock terms, int[] starts, IntBuffer ids) {
+         this.terms = terms;
+         this.starts = starts;
+         this.ids = ids;
+         this.decoded = new String[terms.size()];
+     }
+
+     int size() { return decoded.length; }
+
+     // Ids of terms from..to-1 (one sorted run per term)
+     int[] ids(int from, int to) {
+         int[] run = new int[starts[to] - starts[from]];
+         ids.get(starts[from], run);
+         return run;
+     }
+
+     // Racing readers may both decode a term; they store equal strings
+     String term(int i) {
+         String term = decoded[i];
+         if (term == null) {
+             decoded[i] = term = terms.get(i);
+         }
+         return term;
+     }
+
+     // Index of the first term >= key
+     int lowerBound(String key) {
+         int lo = 0;
+         int hi = size();
+         while (lo < hi) {
+             int mid = (lo + hi) >>> 1;
+             if (term(mid).compareTo(key) < 0) {
+                 lo = mid + 1;
+             } else {
+                 hi = mid;
+             }
+         }
+         return lo;
+     }
+ }
+
+ private final Map<Integer, Product> products;
+ private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+ private Segment saved = Segment.EMPTY;
+ private final TreeMap<String, IdList> postings = new TreeMap<>();
+ // Ids in insertion order; the catalog map already rejects duplicates
+ private final Map<Category, IdList> categoryPostings = new EnumMap<>(Category.class);
+
+ public ProductSearchIndex(Map<Integer, Product> products) {
+     this.products = products;
+     for (Category c : Category.values()) {
+         categoryPostings.put(c, new IdList());
+     }
+ }
+
+ public void add(Product product) {
+     int id = product.getId();
+     List<String> tokens = tokens(product);
+     lock.writeLock().lock();
+     try {
+         for (String token : tokens) {
+             postings.computeIfAbsent(token, k -> new IdList()).add(id);
+         }
+         categoryPostings.get(product.getCategory()).append(id);
+     } finally {
+         lock.writeLock().unlock();
+     }
+ }
+
+ // Bulk load: chunks are tokenized and grouped by term in parallel, then
+ // each term's ids are sorted once, so the tree is touched once per term.
+ // Only the final merge runs under the write lock.
+ public void addAll(List<Product> batch) {
+     int chunk = Math.max(BULK_CHUNK, batch.size() / (4 * ForkJoinPool.getCommonPoolParallelism()) + 1);
+     List<Map<String, IdList>> parts = IntStream.range(0, (batch.size() + chunk - 1) / chunk)
+             .parallel()
+             .mapToObj(c -> group(batch.subList(c * chunk, Math.min(batch.size(), (c + 1) * chunk))))
+             .toList();
+
+     Map<String, IdList> grouped = parts.isEmpty() ? new HashMap<>() : parts.get(0);
+     for (int i = 1; i < parts.size(); i++) {
+         parts.get(i).forEach((token, ids) -> {
+             IdList existing = grouped.putIfAbsent(token, ids);
+             if (existing != null) {
+                 for (int j = 0; j < ids.size; j++) {
+                     existing.append(ids.ids[j]);
+                 }
+             }
+         });
+     }
+     grouped.values().forEach(IdList::normalize);
+
+     lock.writeLock().lock();
+     try {
+         grouped.forEach((token, ids) -> {
+             IdList existing = postings.putIfAbsent(token, ids);
+             if (existing != null) {
+                 existing.addAll(ids);
+             }
+         });
+         for (Product product : batch) {
+             categoryPostings.get(product.getCategory()).append(product.getId());
+         }
+     } finally {
+         lock.writeLock().unlock();
+     }
+ }
+
+ // ================= SNAPSHOT =================
+ // Copy of the term postings (saved segment and tree merged) in term
+ // order, for CatalogIO to save
+ public Map<String, int[]> copyPostings() {
+     lock.readLock().lock();
+     try {
+         Map<String, int[]> copy = new LinkedHashMap<>((saved.size() + postings.size()) * 2);
+         Iterator<Map.Entry<String, IdList>> tree = postings.entrySet().iterator();
+         Map.Entry<String, IdList> next = tree.hasNext() ? tree.next() : null;
+         for (int t = 0; t < saved.size(); t++) {
+             String term = saved.term(t);
+             while (next != null && next.getKey().compareTo(term) < 0) {
+                 copy.put(next.getKey(), Arrays.copyOf(next.getValue().ids, next.getValue().size));
+                 next = tree.hasNext() ? tree.next() : null;
+             }
+             IdList ids = new IdList(saved.ids(t, t + 1));
+             if (next != null && next.getKey().equals(term)) {
+                 ids.addAll(next.getValue());
+                 next = tree.hasNext() ? tree.next() : null;
+             }
+             copy.put(term, Arrays.copyOf(ids.ids, ids.size));
+         }
+         for (; next != null; next = tree.hasNext() ? tree.next() : null) {
+             copy.put(next.getKey(), Arrays.copyOf(next.getValue().ids, next.getValue().size));
+         }
+         return copy;
+     } finally {
+         lock.readLock().unlock();
+     }
+ }
+
+ // Installs postings saved with exactly these products, skipping the
+ // tokenizing; only valid while the index is still empty
+ public void restore(List<Product> batch, Segment segment) {
+     lock.writeLock().lock();
+     try {
+         if (!postings.isEmpty() || saved.size() > 0) {
+             throw new IllegalStateException("Index already populated");
+         }
+         saved = segment;
+         for (Product product : batch) {
+             categoryPostings.get(product.getCategory()).append(product.getId());
+         }
+     } finally {
+         lock.writeLock().unlock();
+     }
+ }
+
+ public boolean isEmpty() {
+     lock.readLock().lock();
+     try {
+         return postings.isEmpty() && saved.size() == 0;
+     } finally {
+         lock.readLock().unlock();
+     }
+ }
+
+ private static Map<String, IdList> group(List<Product> chunk) {
+     Map<String, IdList> terms = new HashMap<>();
+     for (Product product : chunk) {
+         int id = product.getId();
+         for (String token : tokens(product)) {
+             terms.computeIfAbsent(token, k -> new IdList()).append(id);
+         }
+     }
+     return terms;
+ }
+
+ private static List<String> tokens(Product product) {
+     return tokenize(product.getName() + " " + product.getBrand() + " "
+             + product.getDescription() + " " + product.getSeller());
+ }
+
+ // Lower-cased runs of letters and digits (the \p{L}\p{N} classes)
+ static List<String> tokenize(String text) {
+     List<String> tokens = new ArrayList<>();
+     if (text == null) {
+         return tokens;
+     }
+     String lower = text.toLowerCase();
+     int start = -1;
+     for (int i = 0; i < lower.length(); ) {
+         int cp = lower.codePointAt(i);
+         if (isWordChar(cp)) {
+             if (start < 0) start = i;
+         } else if (start >= 0) {
+             tokens.add(lower.substring(start, i));
+             start = -1;
+         }
+         i += Character.charCount(cp);
+     }
+     if (start >= 0) {
+         tokens.add(lower.substring(start));
+     }
+     return tokens;
+ }
+
+ private static boolean isWordChar(int cp) {
+     if (cp < 0x80) {
+         return (cp >= 'a' && cp <= 'z') || (cp >= '0' && cp <= '9') || (cp >= 'A' && cp <= 'Z');
+     }
+     switch (Character.getType(cp)) {
+         case Character.UPPERCASE_LETTER, Character.LOWERCASE_LETTER, Character.TITLECASE_LETTER,
+              Character.MODIFIER_LETTER, Character.OTHER_LETTER,
+              Character.DECIMAL_DIGIT_NUMBER, Character.LETTER_NUMBER, Character.OTHER_NUMBER:
+             return true;
+         default:
+             return false;
+     }
+ }
+
+ // ================= CATEGORY =================
+ public List<Product> byCategory(Category category) {
+     lock.readLock().lock();
+     try {
+         return resolve(categoryPostings.get(category));
+     } finally {
+         lock.readLock().unlock();
+     }
+ }
+
+ // ================= TERM QUERIES =================
+ // Caller holds the read lock
+ private IdList matchTerm(String term, boolean prefix) {
+     int from = saved.lowerBound(term);
+     int to;
+     Collection<IdList> range;
+     if (prefix) {
+         to = saved.lowerBound(term + Character.MAX_VALUE);
+         range = postings.subMap(term, term + Character.MAX_VALUE).values();
+     } else {
+         to = from < saved.size() && saved.term(from).equals(term) ? from + 1 : from;
+         IdList ids = postings.get(term);
+         range = ids == null ? List.of() : List.of(ids);
+     }
+
+     if (from == to) {
+         if (range.isEmpty()) {
+             return IdList.EMPTY;
+         }
+         if (range.size() == 1) {
+             return range.iterator().next();
+         }
+     }
+     if (to - from == 1 && range.isEmpty()) {
+         return new IdList(saved.ids(from, to));
+     }
+
+     IdList ids = new IdList();
+     for (int i = saved.starts[from]; i < saved.starts[to]; i++) {
+         ids.append(saved.ids.get(i));
+     }
+     for (IdList list : range) {
+         for (int i = 0; i < list.size; i++) {
+             ids.append(list.ids[i]);
+         }
+     }
+     ids.normalize();
+     return ids;
+ }
+
+ // AND query: walk the smallest list, probe the others by binary search
+ public Set<Integer> searchAll(String query, boolean prefix) {
+     List<String> terms = tokenize(query);
+     lock.readLock().lock();
+     try {
+         List<IdList> lists = new ArrayList<>();
+         for (String term : terms) {
+             IdList ids = matchTerm(term, prefix);
+             if (ids.size == 0) {
+                 return Collections.emptySet();
+             }
+             lists.add(ids);
+         }
+         if (lists.isEmpty()) {
+             return Collections.emptySet();
+         }
+
+         lists.sort(Comparator.comparingInt(list -> list.size));
+         IdList smallest = lists.get(0);
+         Set<Integer> result = new HashSet<>();
+         next:
+         for (int i = 0; i < smallest.size; i++) {
+             int id = smallest.ids[i];
+             for (int j = 1; j < lists.size(); j++) {
+                 if (!lists.get(j).contains(id)) continue next;
+             }
+             result.add(id);
+         }
+         return result;
+     } finally {
+         lock.readLock().unlock();
+     }
+ }
+
+ // OR query: union of posting lists
+ public Set<Integer> searchAny(String query, boolean prefix) {
+     List<String> terms = tokenize(query);
+     lock.readLock().lock();
+     try {
+         Set<Integer> result = new HashSet<>();
+         for (String term : terms) {
+             IdList ids = matchTerm(term, prefix);
+             for (int i = 0; i < ids.size; i++) {
+                 result.add(ids.ids[i]);
+             }
+         }
+         return result;
+     } finally {
+         lock.readLock().unlock();
+     }
+ }
+
+ // ================= TOP-K BY RATING =================
+ // Bounded min-heap: O(M log K) instead of sorting all M matches
+ public List<Product> topKByRating(Collection<Integer> ids, int k) {
+     if (k <= 0) {
+         return new ArrayList<>();
+     }
+
+     Comparator<Product> byRating = Comparator.comparingDouble(Product::getRating)
+             .thenComparing(Comparator.comparingInt(Product::getId).reversed());
+     PriorityQueue<Product> heap = new PriorityQueue<>(k + 1, byRating);
+
+     for (int id : ids) {
+         Product p = products.get(id);
+         if (p == null) continue;
+         if (heap.size() < k) {
+             heap.offer(p);
+         } else if (byRating.compare(p, heap.peek()) > 0) {
+             heap.poll();
+             heap.offer(p);
+         }
+     }
+
+     List<Product> result = new ArrayList<>(heap);
+     result.sort(byRating.reversed());
+     return result;
+ }
+
+ private List<Product> resolve(IdList ids) {
+     List<Product> result = new ArrayList<>(ids.size);
+     for (int i = 0; i < ids.size; i++) {
+         Product p = products.get(ids.ids[i]);
+         if (p != null) {
+             result.add(p);
+         }
+     }
+     return result;
+ }
+}
+
+//================= RATING INDEX =================
+// Catalog kept ordered by (rating desc, id asc) in a sorted array, so
+// listings page through it by position instead of sorting every product
+// per request. A single add or rating change shifts the tail with one
+// arraycopy; bulk loads merge, and a batch already in order (snapshots
+// are saved that way) is taken without sorting.
+// Reads share a read lock; adds and rating changes take the write lock.
+class RatingIndex {
+
+ private static final Comparator<Product> ORDER =
+         Comparator.comparingDouble(Product::getRating).reversed()
+                 .thenComparingInt(Product::getId);
+
+ private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+ private Product[] ordered = new Product[16];
+ private int size;
+
+ public void add(Product product) {
+     lock.writeLock().lock();
+     try {
+         insert(product);
+     } finally {
+         lock.writeLock().unlock();
+     }
+ }
+
+ // Bulk load: sort the batch unless it is already in order, then merge
+ // it with the current rows in one pass
+ public void addAll(Collection<Product> batch) {
+     Product[] sorted = batch.toArray(new Product[0]);
+     if (!inOrder(sorted)) {
+         Arrays.parallelSort(sorted, ORDER);
+     }
+     lock.writeLock().lock();
+     try {
+         Product[] merged = new Product[Math.max(16, size + sorted.length)];
+         int i = 0;
+         int j = 0;
+         int n = 0;
+         while (i < size && j < sorted.length) {
+             int c = ORDER.compare(ordered[i], sorted[j]);
+             if (c == 0) j++; // already indexed
+             merged[n++] = c <= 0 ? ordered[i++] : sorted[j++];
+         }
+         while (i < size) merged[n++] = ordered[i++];
+         while (j < sorted.length) merged[n++] = sorted[j++];
+         ordered = merged;
+         size = n;
+     } finally {
+         lock.writeLock().unlock();
+     }
+ }
+
+ private static boolean inOrder(Product[] rows) {
+     for (int i = 1; i < rows.length; i++) {
+         if (ORDER.compare(rows[i - 1], rows[i]) >= 0) {
+             return false;
+         }
+     }
+     return true;
+ }
+
+ // Rating is part of the key, so re-insert around the change
+ public void updateRating(Product product, double rating) {
+     lock.writeLock().lock();
+     try {
+         remove(product);
+         product.setRating(rating);
+         insert(product);
+     } finally {
+         lock.writeLock().unlock();
+     }
+ }
+
+ // Caller holds the write lock
+ private void insert(Product product) {
+     int at = Arrays.binarySearch(ordered, 0, size, product, ORDER);
+     if (at >= 0) {
+         return;
+     }
+     at = -at - 1;
+     if (size == ordered.length) {
+         ordered = Arrays.copyOf(ordered, size * 2);
+     }
+     System.arraycopy(ordered, at, ordered, at + 1, size - at);
+     ordered[at] = product;
+     size++;
+ }
+
+ // Caller holds the write lock
+ private void remove(Product product) {
+     int at = Arrays.binarySearch(ordered, 0, size, product, ORDER);
+     if (at >= 0) {
+         System.arraycopy(ordered, at + 1, ordered, at, size - at - 1);
+         ordered[--size] = null;
+     }
+ }
+
+ public int size() {
+     lock.readLock().lock();
+     try {
+         return size;
+     } finally {
+         lock.readLock().unlock();
+     }
+ }
+
+ public int pageCount(int pageSize) {
+     return (size() + pageSize - 1) / pageSize;
+ }
+
+ // Every product in rating order, for CatalogIO to save
+ public List<Product> copyOrdered() {
+     lock.readLock().lock();
+     try {
+         return Arrays.asList(Arrays.copyOf(ordered, size));
+     } finally {
+         lock.readLock().unlock();
+     }
+ }
+
+ // Keyset paging: the rows after `last` (null for the first page) cost
+ // O(log n + pageSize), however deep into the catalog the reader is
+ public List<Product> pageAfter(Product last, int pageSize) {
+     lock.readLock().lock();
+     try {
+         int from = 0;
+         if (last != null) {
+             int at = Arrays.binarySearch(ordered, 0, size, last, ORDER);
+             from = at >= 0 ? at + 1 : -at - 1;
+         }
+         return rows(from, pageSize);
+     } finally {
+         lock.readLock().unlock();
+     }
+ }
+
+ // Pages are 1-based; rows are addressed by position, so any page is O(pageSize)
+ public List<Product> page(int page, int pageSize) {
+     if (page < 1 || pageSize <= 0) {
+         return new ArrayList<>();
+     }
+     lock.readLock().lock();
+     try {
+         return rows((long) (page - 1) * pageSize, pageSize);
+     } finally {
+         lock.readLock().unlock();
+     }
+ }
+
+ // Caller holds the read lock
+ private List<Product> rows(long from, int count) {
+     int start = (int) Math.min(from, size);
+     int end = (int) Math.min((long) start + Math.max(0, count), size);
+     return new ArrayList<>(Arrays.asList(ordered).subList(start, end));
+ }
+}
+
+//================= COLUMNAR CATALOG =================
+// Struct-of-arrays copy of the numeric product fields for analytics.
+// Scans walk primitive arrays sequentially (JIT can vectorize them)
+// instead of chasing Product pointers through the HashMap.
+// Stock is a live column: products write every reserve, release and
+// return through to their cell, in chunks that never move once added.
+// Scans share a read lock; adds and updates take the write lock.
+class ColumnarCatalog {
+
+ private static final int CATEGORIES = Category.values().length;
+ private static final int PARALLEL_THRESHOLD = 1 << 15;
+ private static final int STOCK_CHUNK_BITS = 12;
+ private static final int STOCK_CHUNK = 1 << STOCK_CHUNK_BITS;
+
+ private int size;
+ private int[] ids = new int[16];
+ private double[] prices = new double[16];
+ private double[] discounts = new double[16];
+ private double[] ratings = new double[16];
+ private AtomicIntegerArray[] stocks = new AtomicIntegerArray[1];
+ private byte[] categories = new byte[16];
+ private final IntIntHashMap rowById = new IntIntHashMap(16);
+ private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+ // Column arrays as saved in a snapshot, one entry per row
+ record Columns(int[] ids, double[] prices, double[] discounts, double[] ratings,
+                int[] stocks, byte[] categories) {}
+
+ public int size() {
+     lock.readLock().lock();
+     try {
+         return size;
+     } finally {
+         lock.readLock().unlock();
+     }
+ }
+
+ public void add(Product p) {
+     lock.writeLock().lock();
+     try {
+         append(p);
+     } finally {
+         lock.writeLock().unlock();
+     }
+ }
+
+ // Bulk load: the columns grow once for the whole batch
+ public void addAll(Collection<Product> batch) {
+     lock.writeLock().lock();
+     try {
+         ensureCapacity(size + batch.size());
+         for (Product p : batch) {
+             append(p);
+         }
+     } finally {
+         lock.writeLock().unlock();
+     }
+ }
+
+ // Takes over columns saved with exactly these rows instead of reading
+ // every product back; only valid while the catalog is still empty
+ public void restore(List<Product> rows, Columns saved) {
+     lock.writeLock().lock();
+     try {
+         if (size > 0) {
+             throw new IllegalStateException("Catalog already populated");
+         }
+         ids = saved.ids();
+         prices = saved.prices();
+         discounts = saved.discounts();
+         ratings = saved.ratings();
+         categories = saved.categories();
+         size = rows.size();
+         stocks = new AtomicIntegerArray[Math.max(1, (size + STOCK_CHUNK - 1) >>> STOCK_CHUNK_BITS)];
+         for (int base = 0; base < size; base += STOCK_CHUNK) {
+             stocks[base >>> STOCK_CHUNK_BITS] =
+                     new AtomicIntegerArray(Arrays.copyOfRange(saved.stocks(), base, base + STOCK_CHUNK));
+         }
+         for (int row = 0; row < size; row++) {
+             rows.get(row).mirrorStockTo(stocks[row >>> STOCK_CHUNK_BITS], row & (STOCK_CHUNK - 1));
+             rowById.addTo(ids[row], row + 1);
+         }
+     } finally {
+         lock.writeLock().unlock();
+     }
+ }
+
+ private void ensureCapacity(int rows) {
+     if (rows > ids.length) {
+         int capacity = Math.max(rows, ids.length * 2);
+         ids = Arrays.copyOf(ids, capacity);
+         prices = Arrays.copyOf(prices, capacity);
+         discounts = Arrays.copyOf(discounts, capacity);
+         ratings = Arrays.copyOf(ratings, capacity);
+         categories = Arrays.copyOf(categories, capacity);
+     }
+ }
+
+ private void append(Product p) {
+     ensureCapacity(size + 1);
+     int chunk = size >>> STOCK_CHUNK_BITS;
+     if (chunk == stocks.length) {
+         stocks = Arrays.copyOf(stocks, chunk * 2);
+     }
+     if (stocks[chunk] == null) {
+         stocks[chunk] = new AtomicIntegerArray(STOCK_CHUNK);
+     }
+     ids[size] = p.getId();
+     prices[size] = p.getPrice();
+     discounts[size] = p.getDiscount();
+     ratings[size] = p.getRating();
+     categories[size] = (byte) p.getCategory().ordinal();
+     p.mirrorStockTo(stocks[chunk], size & (STOCK_CHUNK - 1));
+     rowById.addTo(p.getId(), size + 1); // 0 means absent
+     size++;
+ }
+
+ public void updateRating(int productId, double rating) {
+     lock.writeLock().lock();
+     try {
+         int row = rowById.get(productId) - 1;
+         if (row >= 0) {
+             ratings[row] = rating;
+         }
+     } finally {
+         lock.writeLock().unlock();
+     }
+ }
+
+ public void updatePricing(int productId, double price, double discount) {
+     lock.writeLock().lock();
+     try {
+         int row = rowById.get(productId) - 1;
+         if (row >= 0) {
+             prices[row] = price;
+             discounts[row] = discount;
+         }
+     } finally {
+         lock.writeLock().unlock();
+     }
+ }
+
+ // ================= SEQUENTIAL SCANS =================
+ // Returns average final price indexed by Category ordinal (NaN if empty)
+ public double[] averageFinalPriceByCategory() {
+     double[] acc = new double[CATEGORIES * 2];
+     lock.readLock().lock();
+     try {
+         accumulateFinalPrice(0, size, acc);
+     } finally {
+         lock.readLock().unlock();
+     }
+     return averages(acc);
+ }
+
+ private void accumulateFinalPrice(int from, int to, double[] acc) {
+     for (int row = from; row < to; row++) {
+         int c = categories[row];
+         acc[c] += prices[row] - prices[row] * discounts[row] / 100;
+         acc[CATEGORIES + c] += 1;
+     }
+ }
+
+ private static double[] averages(double[] acc) {
+     double[] avg = new double[CATEGORIES];
+     for (int c = 0; c < CATEGORIES; c++) {
+         avg[c] = acc[CATEGORIES + c] == 0 ? Double.NaN : acc[c] / acc[CATEGORIES + c];
+     }
+     return avg;
+ }
+
+ public int[] lowStockIds(int threshold) {
+     lock.readLock().lock();
+     try {
+         int[] result = new int[16];
+         int count = 0;
+         for (int base = 0; base < size; base += STOCK_CHUNK) {
+             AtomicIntegerArray chunk = stocks[base >>> STOCK_CHUNK_BITS];
+             int rows = Math.min(STOCK_CHUNK, size - base);
+             for (int i = 0; i < rows; i++) {
+                 if (chunk.get(i) <= threshold) {
+                     if (count == result.length) result = Arrays.copyOf(result, count * 2);
+                     result[count++] = ids[base + i];
+                 }
+             }
+         }
+         return Arrays.copyOf(result, count);
+     } finally {
+         lock.readLock().unlock();
+     }
+ }
+
+ // Buckets of bucketWidth percent, covering discounts 0..100
+ public int[] discountHistogram(int bucketWidth) {
+     int[] buckets = new int[100 / bucketWidth + 1];
+     lock.readLock().lock();
+     try {
+         accumulateHistogram(0, size, bucketWidth, buckets);
+     } finally {
+         lock.readLock().unlock();
+     }
+     return buckets;
+ }
+
+ private void accumulateHistogram(int from, int to, int bucketWidth, int[] buckets) {
+     int last = buckets.length - 1;
+     for (int row = from; row < to; row++) {
+         int b = (int) (discounts[row] / bucketWidth);
+         buckets[Math.max(0, Math.min(last, b))]++;
+     }
+ }
 
-//================= CUSTOM EXCEPTION =================
-class OutOfStockException extends Exception {
- public OutOfStockException(String message) {
-     super(message);
+ // ================= PARALLEL (FORK/JOIN) =================
+ // The calling thread holds the read lock while the workers scan
+ public double[] averageFinalPriceByCategoryParallel() {
+     lock.readLock().lock();
+     try {
+         return averages(ForkJoinPool.commonPool().invoke(new FinalPriceTask(0, size)));
+     } finally {
+         lock.readLock().unlock();
+     }
  }
-}
 
-//================= ENUMS =================
-enum Role {
- ADMIN,
- CUSTOMER
-}
+ public int[] discountHistogramParallel(int bucketWidth) {
+     lock.readLock().lock();
+     try {
+         return ForkJoinPool.commonPool().invoke(new HistogramTask(0, size, bucketWidth));
+     } finally {
+         lock.readLock().unlock();
+     }
+ }
 
-enum Category {
- ELECTRONICS,
- FASHION,
- HOME,
- BOOKS,
- GROCERY
-}
+ @SuppressWarnings("serial") // tasks are never serialized
+ private class FinalPriceTask extends RecursiveTask<double[]> {
+     private final int from, to;
 
-//================= PRODUCT CLASS =================
-class Product {
- private int id;
- private String name;
- private String brand;
- private String description;
- private Category category;
- private double price;
- private double discount;
- private double rating;
- private int stock;
- private String seller;
+     FinalPriceTask(int from, int to) {
+         this.from = from;
+         this.to = to;
+     }
 
- public Product(int id, String name, String brand, String description,
-                Category category, double price, double discount,
-                double rating, int stock, String seller) {
-     this.id = id;
-     this.name = name;
-     this.brand = brand;
-     this.description = description;
-     this.category = category;
-     this.price = price;
-     this.discount = discount;
-     this.rating = rating;
-     this.stock = stock;
-     this.seller = seller;
+     @Override
+     protected double[] compute() {
+         if (to - from <= PARALLEL_THRESHOLD) {
+             double[] acc = new double[CATEGORIES * 2];
+             accumulateFinalPrice(from, to, acc);
+             return acc;
+         }
+         int mid = (from + to) >>> 1;
+         FinalPriceTask left = new FinalPriceTask(from, mid);
+         left.fork();
+         double[] acc = new FinalPriceTask(mid, to).compute();
+         double[] other = left.join();
+         for (int i = 0; i < acc.length; i++) {
+             acc[i] += other[i];
+         }
+         return acc;
+     }
  }
 
- public int getId() { return id; }
- public String getName() { return name; }
- public Category getCategory() { return category; }
- public double getPrice() { return price; }
- public double getRating() { return rating; }
- public int getStock() { return stock; }
+ @SuppressWarnings("serial") // tasks are never serialized
+ private class HistogramTask extends RecursiveTask<int[]> {
+     private final int from, to, bucketWidth;
 
- public double getFinalPrice() {
-     return price - (price * discount / 100);
+     HistogramTask(int from, int to, int bucketWidth) {
+         this.from = from;
+         this.to = to;
+         this.bucketWidth = bucketWidth;
+     }
+
+     @Override
+     protected int[] compute() {
+         if (to - from <= PARALLEL_THRESHOLD) {
+             int[] buckets = new int[100 / bucketWidth + 1];
+             accumulateHistogram(from, to, bucketWidth, buckets);
+             return buckets;
+         }
+         int mid = (from + to) >>> 1;
+         HistogramTask left = new HistogramTask(from, mid, bucketWidth);
+         left.fork();
+         int[] buckets = new HistogramTask(mid, to, bucketWidth).compute();
+         int[] other = left.join();
+         for (int i = 0; i < buckets.length; i++) {
+             buckets[i] += other[i];
+         }
+         return buckets;
+     }
  }
+}
 
- public void reduceStock(int quantity) throws OutOfStockException {
-     if (quantity > stock) {
-         throw new OutOfStockException("Only " + stock + " items left!");
+//================= CATALOG IMPORT / EXPORT =================
+// CSV bulk import (parsed in parallel) and a binary snapshot laid out so
+// a load is a few bulk copies instead of per-field parsing:
+// [int magic][int version][int count], rows in rating order as columns
+// [int ids][double prices][double discounts][double ratings][int stocks]
+// [byte categories], the text block (name, brand, description, seller
+// per row) as [int entries][int offsets * (entries + 1)][int length][UTF-8],
+// then the search postings as a text block of terms in term order,
+// [int starts * (terms + 1)] and [int ids * starts[terms]].
+// Version 1 and 2 files (per-product writeUTF records) are still read.
+class CatalogIO {
+
+ static final String CSV_HEADER = "id,name,brand,description,category,price,discount,rating,stock,seller";
+ private static final int MAGIC = 0x4341544C; // "CATL"
+ private static final int VERSION = 3; // 3 stores columns, one text block and the postings segment
+ private static final int BUFFER = 1 << 16;
+
+ // Rows that fail to parse are counted in badRows and skipped
+ public static List<Product> readCsv(Path file, AtomicInteger badRows) throws IOException {
+     try (Stream<String> lines = Files.lines(file, StandardCharsets.UTF_8)) {
+         return lines.skip(1)
+                 .parallel()
+                 .map(line -> {
+                     Product p = parseCsvLine(line);
+                     if (p == null) badRows.incrementAndGet();
+                     return p;
+                 })
+                 .filter(Objects::nonNull)
+                 .toList();
      }
-     stock -= quantity;
  }
 
- @Override
- public String toString() {
-     return "\n----------------------------------" +
-             "\nID: " + id +
-             "\nName: " + name +
-             "\nBrand: " + brand +
-             "\nCategory: " + category +
-             "\nSeller: " + seller +
-             "\nRating: ⭐ " + rating +
-             "\nOriginal Price: ₹" + price +
-             "\nDiscount: " + discount + "%" +
-             "\nFinal Price: ₹" + getFinalPrice() +
-             "\nStock Left: " + stock +
-             "\nDescription: " + description +
-             "\n----------------------------------";
+ static Product parseCsvLine(String line) {
+     List<String> f = splitCsv(line);
+     if (f.size() != 10) {
+         return null;
+     }
+     try {
+         return new Product(
+                 Integer.parseInt(f.get(0).trim()),
+                 f.get(1),
+                 f.get(2),
+                 f.get(3),
+                 Category.valueOf(f.get(4).trim().toUpperCase()),
+                 Double.parseDouble(f.get(5).trim()),
+                 Double.parseDouble(f.get(6).trim()),
+                 Double.parseDouble(f.get(7).trim()),
+                 Integer.parseInt(f.get(8).trim()),
+                 f.get(9));
+     } catch (IllegalArgumentException e) {
+         return null;
+     }
  }
-}
 
-//================= USER CLASS =================
-class User {
- private String username;
- private String password;
- private Role role;
- private List<Product> cart = new ArrayList<>();
- private List<String> orders = new ArrayList<>();
+ // Comma separated; fields may be double-quoted with "" as an escaped quote
+ private static List<String> splitCsv(String line) {
+     List<String> fields = new ArrayList<>(10);
+     StringBuilder field = new StringBuilder();
+     boolean quoted = false;
+     for (int i = 0; i < line.length(); i++) {
+         char c = line.charAt(i);
+         if (quoted) {
+             if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                 field.append('"');
+                 i++;
+             } else if (c == '"') {
+                 quoted = false;
+             } else {
+                 field.append(c);
+             }
+         } else if (c == '"') {
+             quoted = true;
+         } else if (c == ',') {
+             fields.add(field.toString());
+             field.setLength(0);
+         } else {
+             field.append(c);
+         }
+     }
+     fields.add(field.toString());
+     return fields;
+ }
 
- public User(String username, String password, Role role) {
-     this.username = username;
-     this.password = password;
-     this.role = role;
+ // Products in rating order, plus (from version 3) their columns and the
+ // search postings, so a load neither re-reads nor re-tokenizes them
+ record Snapshot(List<Product> products, ColumnarCatalog.Columns columns,
+                 ProductSearchIndex.Segment postings) {}
+
+ public static void writeSnapshot(Path file, RatingIndex ratings, ProductSearchIndex index)
+         throws IOException {
+     // Every product reaches the search index before the rating index,
+     // so postings copied second cover all of these rows
+     List<Product> rows = ratings.copyOrdered();
+     Map<String, int[]> postings = index.copyPostings();
+
+     Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+     try (DataOutputStream out = new DataOutputStream(
+             new BufferedOutputStream(Files.newOutputStream(tmp), BUFFER))) {
+         out.writeInt(MAGIC);
+         out.writeInt(VERSION);
+         out.writeInt(rows.size());
+         for (Product p : rows) out.writeInt(p.getId());
+         for (Product p : rows) out.writeDouble(p.getPrice());
+         for (Product p : rows) out.writeDouble(p.getDiscount());
+         for (Product p : rows) out.writeDouble(p.getRating());
+         for (Product p : rows) out.writeInt(p.getStock());
+         for (Product p : rows) out.writeByte(p.getCategory().ordinal());
+
+         List<String> text = new ArrayList<>(rows.size() * Product.TEXT_FIELDS);
+         for (Product p : rows) {
+             Collections.addAll(text, p.getName(), p.getBrand(), p.getDescription(), p.getSeller());
+         }
+         writeText(out, text);
+
+         writeText(out, postings.keySet());
+         int start = 0;
+         out.writeInt(start);
+         for (int[] ids : postings.values()) {
+             out.writeInt(start += ids.length);
+         }
+         for (int[] ids : postings.values()) {
+             for (int id : ids) {
+                 out.writeInt(id);
+             }
+         }
+     }
+     Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
  }
 
- public String getUsername() { return username; }
- public Role getRole() { return role; }
+ // Offsets go out as the bytes are buffered, then the bytes in one piece
+ private static void writeText(DataOutputStream out, Collection<String> strings) throws IOException {
+     ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+     out.writeInt(strings.size());
+     out.writeInt(0);
+     for (String s : strings) {
+         bytes.writeBytes(s.getBytes(StandardCharsets.UTF_8));
+         out.writeInt(bytes.size());
+     }
+     out.writeInt(bytes.size());
+     bytes.writeTo(out);
+ }
 
- public boolean authenticate(String password) {
-     return this.password.equals(password);
+ // Older versions carry no usable postings; the caller indexes them in full
+ public static Snapshot readSnapshot(Path file) throws IOException {
+     ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(file));
+     int version;
+     if (in.remaining() < 3 * Integer.BYTES || in.getInt() != MAGIC
+             || (version = in.getInt()) < 1 || version > VERSION) {
+         throw new IOException("Not a catalog snapshot: " + file);
+     }
+     try {
+         return version < 3 ? readRecords(in) : readColumns(in);
+     } catch (BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException e) {
+         throw new IOException("Corrupt catalog snapshot: " + file, e);
+     }
  }
 
- public List<Product> getCart() { return cart; }
+ private static Snapshot readColumns(ByteBuffer in) throws IOException {
+     int count = in.getInt();
+     int[] ids = readInts(in, count);
+     double[] prices = readDoubles(in, count);
+     double[] discounts = readDoubles(in, count);
+     double[] ratings = readDoubles(in, count);
+     int[] stocks = readInts(in, count);
+     byte[] categoryOrdinals = new byte[count];
+     in.get(categoryOrdinals);
+     TextBlock text = readText(in);
+     if (text.size() != count * Product.TEXT_FIELDS) {
+         throw new IOException("Text block does not match " + count + " products");
+     }
+
+     Category[] categories = Category.values();
+     List<Product> products = new ArrayList<>(count);
+     for (int row = 0; row < count; row++) {
+         products.add(new Product(ids[row], text, row, categories[categoryOrdinals[row]],
+                 prices[row], discounts[row], ratings[row], stocks[row]));
+     }
 
- public void addToCart(Product product) {
-     cart.add(product);
+     TextBlock terms = readText(in);
+     int[] starts = readInts(in, terms.size() + 1);
+     int postings = starts[terms.size()];
+     IntBuffer postingIds = in.slice(in.position(), postings * Integer.BYTES).asIntBuffer();
+     for (int i = 1; i < starts.length; i++) {
+         if (starts[i] < starts[i - 1]) {
+             throw new IndexOutOfBoundsException("Bad posting start " + starts[i]);
+         }
+     }
+     ColumnarCatalog.Columns columns = new ColumnarCatalog.Columns(
+             ids, prices, discounts, ratings, stocks, categoryOrdinals);
+     return new Snapshot(products, columns, new ProductSearchIndex.Segment(terms, starts, postingIds));
  }
 
- public void clearCart() {
-     cart.clear();
+ // The block keeps pointing into the file's bytes; only the offsets are
+ // rebased to absolute positions
+ private static TextBlock readText(ByteBuffer in) {
+     int[] offsets = readInts(in, in.getInt() + 1);
+     int length = in.getInt();
+     if (length < 0 || length > in.remaining()) {
+         throw new BufferUnderflowException();
+     }
+     int base = in.position();
+     in.position(base + length);
+     for (int i = 0; i < offsets.length; i++) {
+         if (offsets[i] < (i == 0 ? 0 : offsets[i - 1] - base) || offsets[i] > length) {
+             throw new IndexOutOfBoundsException("Bad text offset " + offsets[i]);
+         }
+         offsets[i] += base;
+     }
+     return new TextBlock(in.array(), offsets);
  }
 
- public void addOrder(String orderDetails) {
-     orders.add(orderDetails);
+ private static int[] readInts(ByteBuffer in, int n) {
+     int[] values = new int[n];
+     in.asIntBuffer().get(values);
+     in.position(in.position() + n * Integer.BYTES);
+     return values;
  }
 
- public void viewOrders() {
-     if (orders.isEmpty()) {
-         System.out.println("No orders found.");
-     } else {
-         orders.forEach(System.out::println);
+ private static double[] readDoubles(ByteBuffer in, int n) {
+     double[] values = new double[n];
+     in.asDoubleBuffer().get(values);
+     in.position(in.position() + n * Double.BYTES);
+     return values;
+ }
+
+ // Versions 1 and 2: one writeUTF record per product (version 2's
+ // postings follow and are left unread)
+ private static Snapshot readRecords(ByteBuffer buffer) throws IOException {
+     DataInputStream in = new DataInputStream(
+             new ByteArrayInputStream(buffer.array(), buffer.position(), buffer.remaining()));
+     Category[] categories = Category.values();
+     int count = in.readInt();
+     List<Product> products = new ArrayList<>(count);
+     for (int i = 0; i < count; i++) {
+         products.add(new Product(
+                 in.readInt(),
+                 in.readUTF(),
+                 in.readUTF(),
+                 in.readUTF(),
+                 categories[in.readByte()],
+                 in.readDouble(),
+                 in.readDouble(),
+                 in.readDouble(),
+                 in.readInt(),
+                 in.readUTF()));
      }
+     return new Snapshot(products, null, null);
  }
 }
 
 //================= MAIN APPLICATION =================
 public class ECommerceApp {
 
- static Scanner sc = new Scanner(System.in);
- static Map<String, User> users = new HashMap<>();
- static Map<Integer, Product> products = new HashMap<>();
- static int productIdCounter = 1;
+ static final Scanner STDIN = new Scanner(System.in);
+ // Menus read from the calling thread's scanner so simulated clients can drive them
+ static final ThreadLocal<Scanner> input = ThreadLocal.withInitial(() -> STDIN);
+ static Map<String, User> users = new ConcurrentHashMap<>();
+ static Map<Integer, Product> products = new ConcurrentHashMap<>();
+ static SessionService sessionService = new SessionService(users, TimeUnit.MINUTES.toMillis(30), 2, 64);
+ static ProductSearchIndex searchIndex = new ProductSearchIndex(products);
+ static RatingIndex ratingIndex = new RatingIndex();
+ static ColumnarCatalog columnarCatalog = new ColumnarCatalog();
+ static final int PAGE_SIZE = 20;
+ static final long CART_HOLD_MILLIS = TimeUnit.MINUTES.toMillis(15);
+ static final Path CATALOG_SNAPSHOT = Paths.get("catalog.bin");
+ static OrderLog orderLog = openOrderLog(Paths.get("orders.log"));
+ static CheckoutPipeline checkoutPipeline = new CheckoutPipeline(orderLog, 10_000, 256);
+
+ static OrderLog openOrderLog(Path file) {
+     try {
+         return new OrderLog(file);
+     } catch (IOException e) {
+         throw new UncheckedIOException("Cannot open order log " + file, e);
+     }
+ }
+ static final AtomicInteger productIdCounter = new AtomicInteger(1); // next free id
+
+ static Scanner sc() {
+     return input.get();
+ }
 
  public static void main(String[] args) {
 
      // Default Admin
      users.put("admin", new User("admin", "admin123", Role.ADMIN));
 
+     loadSnapshot();
+
      while (true) {
          System.out.println("\n===== AMAZON / FLIPKART STYLE SYSTEM =====");
          System.out.println("1. Register");
          System.out.println("2. Login");
          System.out.println("3. Exit");
          System.out.print("Choose: ");
-         int choice = sc.nextInt();
+         int choice = sc().nextInt();
 
          switch (choice) {
              case 1 -> register();
@@ -163,54 +2322,88 @@ public class ECommerceApp {
  // ================= REGISTER =================
  static void register() {
      System.out.print("Username: ");
-     String username = sc.next();
+     String username = sc().next();
      System.out.print("Password: ");
-     String password = sc.next();
+     String password = sc().next();
 
-     if (users.containsKey(username)) {
+     if (users.putIfAbsent(username, new User(username, password, Role.CUSTOMER)) != null) {
          System.out.println("Username already exists!");
          return;
      }
 
-     users.put(username, new User(username, password, Role.CUSTOMER));
      System.out.println("Registration successful!");
  }
 
  // ================= LOGIN =================
  static void login() {
      System.out.print("Username: ");
-     String username = sc.next();
+     String username = sc().next();
      System.out.print("Password: ");
-     String password = sc.next();
+     String password = sc().next();
 
-     User user = users.get(username);
-
-     if (user == null || !user.authenticate(password)) {
-         System.out.println("Invalid credentials!");
+     SessionService.Session session;
+     try {
+         session = sessionService.login(username, password).join();
+     } catch (CompletionException e) {
+         System.out.println(e.getCause().getMessage());
          return;
      }
 
-     if (user.getRole() == Role.ADMIN) {
-         adminMenu();
-     } else {
-         customerMenu(user);
+     try {
+         if (session.getUser().getRole() == Role.ADMIN) {
+             adminMenu(session);
+         } else {
+             customerMenu(session);
+         }
+     } finally {
+         sessionService.logout(session.getToken());
+     }
+ }
+
+ static boolean sessionExpired(SessionService.Session session) {
+     if (sessionService.validate(session.getToken()) == null) {
+         System.out.println("Session expired, please log in again.");
+         return true;
      }
+     return false;
  }
 
  // ================= ADMIN MENU =================
- static void adminMenu() {
+ static void adminMenu(SessionService.Session session) {
      while (true) {
          System.out.println("\n--- ADMIN MENU ---");
          System.out.println("1. Add Product");
          System.out.println("2. View Products");
-         System.out.println("3. Logout");
-
-         int choice = sc.nextInt();
+         System.out.println("3. Update Rating");
+         System.out.println("4. Update Price/Discount");
+         System.out.println("5. Simulate Flash Sale");
+         System.out.println("6. Simulate Checkout Burst");
+         System.out.println("7. Checkout Pipeline Stats");
+         System.out.println("8. Catalog Analytics");
+         System.out.println("9. Benchmark Catalog Scans");
+         System.out.println("10. Simulate Concurrent Shoppers");
+         System.out.println("11. Import Products from CSV");
+         System.out.println("12. Save Catalog Snapshot");
+         System.out.println("13. Logout");
+
+         int choice = sc().nextInt();
+
+         if (sessionExpired(session)) return;
 
          switch (choice) {
              case 1 -> addProduct();
              case 2 -> viewProducts();
-             case 3 -> { return; }
+             case 3 -> updateRating();
+             case 4 -> updatePricing();
+             case 5 -> simulateFlashSale();
+             case 6 -> simulateCheckoutBurst();
+             case 7 -> checkoutPipeline.printStats();
+             case 8 -> catalogAnalytics();
+             case 9 -> benchmarkCatalogScans();
+             case 10 -> simulateConcurrentShoppers();
+             case 11 -> importCsv();
+             case 12 -> saveSnapshot();
+             case 13 -> { return; }
              default -> System.out.println("Invalid option!");
          }
      }
@@ -219,58 +2412,197 @@ public class ECommerceApp {
  // ================= ADD PRODUCT =================
  static void addProduct() {
 
-     sc.nextLine();
+     sc().nextLine();
 
      System.out.print("Product Name: ");
-     String name = sc.nextLine();
+     String name = sc().nextLine();
 
      System.out.print("Brand: ");
-     String brand = sc.nextLine();
+     String brand = sc().nextLine();
 
      System.out.print("Description: ");
-     String description = sc.nextLine();
+     String description = sc().nextLine();
 
      System.out.println("Select Category:");
      for (Category c : Category.values()) {
          System.out.println(c.ordinal() + 1 + ". " + c);
      }
-     int catChoice = sc.nextInt();
+     int catChoice = sc().nextInt();
      Category category = Category.values()[catChoice - 1];
 
      System.out.print("Price: ");
-     double price = sc.nextDouble();
+     double price = sc().nextDouble();
 
      System.out.print("Discount (%): ");
-     double discount = sc.nextDouble();
+     double discount = sc().nextDouble();
 
      System.out.print("Rating (0-5): ");
-     double rating = sc.nextDouble();
+     double rating = sc().nextDouble();
 
      System.out.print("Stock: ");
-     int stock = sc.nextInt();
+     int stock = sc().nextInt();
 
-     sc.nextLine();
+     sc().nextLine();
      System.out.print("Seller Name: ");
-     String seller = sc.nextLine();
-
-     Product product = new Product(
-             productIdCounter++,
-             name,
-             brand,
-             description,
-             category,
-             price,
-             discount,
-             rating,
-             stock,
-             seller
-     );
-
-     products.put(product.getId(), product);
+     String seller = sc().nextLine();
+
+     // An id taken concurrently by an import is skipped
+     Product product;
+     do {
+         product = new Product(
+                 productIdCounter.getAndIncrement(),
+                 name,
+                 brand,
+                 description,
+                 category,
+                 price,
+                 discount,
+                 rating,
+                 stock,
+                 seller
+         );
+     } while (!indexProduct(product));
 
      System.out.println("Product added successfully!");
  }
 
+ // Registers a product with the catalog map and every index; false if
+ // the id is already taken
+ static boolean indexProduct(Product product) {
+     if (products.putIfAbsent(product.getId(), product) != null) {
+         return false;
+     }
+     searchIndex.add(product);
+     ratingIndex.add(product);
+     columnarCatalog.add(product);
+     productIdCounter.accumulateAndGet(product.getId() + 1, Math::max);
+     return true;
+ }
+
+ // Returns how many were added; ids already in the catalog are skipped.
+ // Every index is built in bulk for the whole batch.
+ static int indexProducts(List<Product> batch) {
+     return indexProducts(batch, null, null);
+ }
+
+ // savedPostings and savedColumns (from a snapshot) replace tokenizing and
+ // re-reading the products when the index is empty and every product in
+ // the batch is new
+ static int indexProducts(List<Product> batch, ProductSearchIndex.Segment savedPostings,
+                          ColumnarCatalog.Columns savedColumns) {
+     List<Product> fresh = new ArrayList<>(batch.size());
+     for (Product p : batch) {
+         if (products.putIfAbsent(p.getId(), p) == null) {
+             fresh.add(p);
+         }
+     }
+     boolean whole = fresh.size() == batch.size();
+     if (savedPostings != null && whole && searchIndex.isEmpty()) {
+         searchIndex.restore(fresh, savedPostings);
+     } else {
+         searchIndex.addAll(fresh);
+     }
+     ratingIndex.addAll(fresh);
+     if (savedColumns != null && whole && columnarCatalog.size() == 0) {
+         columnarCatalog.restore(fresh, savedColumns);
+     } else {
+         columnarCatalog.addAll(fresh);
+     }
+     int maxId = 0;
+     for (Product p : fresh) {
+         maxId = Math.max(maxId, p.getId());
+     }
+     productIdCounter.accumulateAndGet(maxId + 1, Math::max);
+     return fresh.size();
+ }
+
+ // ================= IMPORT CSV =================
+ static void importCsv() {
+     System.out.print("CSV file path: ");
+     Path file = Paths.get(sc().next());
+
+     long t0 = System.nanoTime();
+     AtomicInteger bad = new AtomicInteger();
+     try {
+         List<Product> rows = CatalogIO.readCsv(file, bad);
+         long parsed = System.nanoTime();
+         int added = indexProducts(rows);
+         System.out.printf("Imported %d products (%d duplicate ids, %d bad rows) | parse %.0f ms, index %.0f ms%n",
+                 added, rows.size() - added, bad.get(), (parsed - t0) / 1e6, (System.nanoTime() - parsed) / 1e6);
+     } catch (IOException | UncheckedIOException e) {
+         System.out.println("Error reading " + file + ": " + e.getMessage());
+     }
+ }
+
+ // ================= SNAPSHOT =================
+ static void saveSnapshot() {
+     long t0 = System.nanoTime();
+     try {
+         CatalogIO.writeSnapshot(CATALOG_SNAPSHOT, ratingIndex, searchIndex);
+         System.out.printf("Saved %d products to %s in %.0f ms%n",
+                 products.size(), CATALOG_SNAPSHOT, (System.nanoTime() - t0) / 1e6);
+     } catch (IOException e) {
+         System.out.println("Error writing snapshot: " + e.getMessage());
+     }
+ }
+
+ static void loadSnapshot() {
+     if (!Files.exists(CATALOG_SNAPSHOT)) return;
+
+     long t0 = System.nanoTime();
+     try {
+         CatalogIO.Snapshot snapshot = CatalogIO.readSnapshot(CATALOG_SNAPSHOT);
+         int added = indexProducts(snapshot.products(), snapshot.postings(), snapshot.columns());
+         System.out.printf("Loaded %d products from %s in %.0f ms%n",
+                 added, CATALOG_SNAPSHOT, (System.nanoTime() - t0) / 1e6);
+     } catch (IOException e) {
+         System.out.println("Could not load catalog snapshot: " + e.getMessage());
+     }
+ }
+
+ // ================= UPDATE RATING =================
+ static void updateRating() {
+     System.out.print("Enter Product ID: ");
+     int id = sc().nextInt();
+
+     Product product = products.get(id);
+
+     if (product == null) {
+         System.out.println("Product not found!");
+         return;
+     }
+
+     System.out.print("New Rating (0-5): ");
+     double rating = sc().nextDouble();
+
+     ratingIndex.updateRating(product, rating);
+     columnarCatalog.updateRating(id, rating);
+     System.out.println("Rating updated!");
+ }
+
+ // ================= UPDATE PRICE =================
+ static void updatePricing() {
+     System.out.print("Enter Product ID: ");
+     int id = sc().nextInt();
+
+     Product product = products.get(id);
+
+     if (product == null) {
+         System.out.println("Product not found!");
+         return;
+     }
+
+     System.out.print("New Price: ");
+     double price = sc().nextDouble();
+
+     System.out.print("New Discount (%): ");
+     double discount = sc().nextDouble();
+
+     product.setPricing(price, discount);
+     columnarCatalog.updatePricing(id, price, discount);
+     System.out.println("Price updated! Final price: ₹" + product.getFinalPrice());
+ }
+
  // ================= VIEW PRODUCTS =================
  static void viewProducts() {
      if (products.isEmpty()) {
@@ -278,35 +2610,131 @@ public class ECommerceApp {
          return;
      }
 
-     products.values()
-             .stream()
-             .sorted(Comparator.comparing(Product::getRating).reversed())
-             .forEach(System.out::println);
+     int pages = ratingIndex.pageCount(PAGE_SIZE);
+
+     Product last = null; // each page resumes after the last product shown
+     for (int page = 1; page <= pages; page++) {
+         List<Product> rows = ratingIndex.pageAfter(last, PAGE_SIZE);
+         if (rows.isEmpty()) break;
+         rows.forEach(System.out::println);
+         last = rows.get(rows.size() - 1);
+
+         if (page == pages) break;
+
+         System.out.print("Page " + page + "/" + pages + " - next page? (y/n): ");
+         if (!sc().next().equalsIgnoreCase("y")) break;
+     }
+ }
+
+ // ================= CATALOG ANALYTICS =================
+ static void catalogAnalytics() {
+     if (columnarCatalog.size() == 0) {
+         System.out.println("No products available.");
+         return;
+     }
+
+     System.out.println("Average final price by category:");
+     double[] avg = columnarCatalog.averageFinalPriceByCategoryParallel();
+     for (Category c : Category.values()) {
+         if (!Double.isNaN(avg[c.ordinal()])) {
+             System.out.printf("  %-12s ₹%.2f%n", c, avg[c.ordinal()]);
+         }
+     }
+
+     System.out.println("Discount histogram (10% buckets):");
+     int[] buckets = columnarCatalog.discountHistogramParallel(10);
+     for (int b = 0; b < buckets.length; b++) {
+         if (buckets[b] > 0) {
+             System.out.println("  " + b * 10 + "%+ : " + buckets[b]);
+         }
+     }
+
+     System.out.println("Low stock (<= 5) product IDs: "
+             + Arrays.toString(columnarCatalog.lowStockIds(5)));
+ }
+
+ // ================= CATALOG SCAN BENCHMARK =================
+ // Average price per category over a synthetic catalog: HashMap of
+ // Product objects vs columnar sequential vs columnar fork/join.
+ static void benchmarkCatalogScans() {
+     final int size = 500_000;
+     final int rounds = 10;
+
+     Map<Integer, Product> map = new HashMap<>();
+     ColumnarCatalog columns = new ColumnarCatalog();
+     Random rnd = new Random(42);
+     Category[] cats = Category.values();
+
+     for (int i = 1; i <= size; i++) {
+         Product p = new Product(i, "Item", "Brand", "Bench", cats[rnd.nextInt(cats.length)],
+                 100 + rnd.nextInt(10_000), rnd.nextInt(60), rnd.nextInt(50) / 10.0, rnd.nextInt(100), "Seller");
+         map.put(i, p);
+         columns.add(p);
+     }
+
+     double sink = 0;
+     long mapNanos = 0, seqNanos = 0, parNanos = 0;
+
+     for (int r = 0; r < rounds * 2; r++) { // first half is warm-up
+         boolean measure = r >= rounds;
+
+         long t0 = System.nanoTime();
+         double[] sum = new double[cats.length];
+         int[] count = new int[cats.length];
+         for (Product p : map.values()) {
+             sum[p.getCategory().ordinal()] += p.getFinalPrice();
+             count[p.getCategory().ordinal()]++;
+         }
+         sink += sum[0] / Math.max(1, count[0]);
+         long t1 = System.nanoTime();
+         sink += columns.averageFinalPriceByCategory()[0];
+         long t2 = System.nanoTime();
+         sink += columns.averageFinalPriceByCategoryParallel()[0];
+         long t3 = System.nanoTime();
+
+         if (measure) {
+             mapNanos += t1 - t0;
+             seqNanos += t2 - t1;
+             parNanos += t3 - t2;
+         }
+     }
+
+     System.out.println("Products: " + size + " | rounds: " + rounds + " (checksum " + (long) sink + ")");
+     System.out.printf("HashMap scan:        %.2f ms/op%n", mapNanos / 1e6 / rounds);
+     System.out.printf("Columnar sequential: %.2f ms/op%n", seqNanos / 1e6 / rounds);
+     System.out.printf("Columnar fork/join:  %.2f ms/op%n", parNanos / 1e6 / rounds);
  }
 
  // ================= CUSTOMER MENU =================
- static void customerMenu(User user) {
+ static void customerMenu(SessionService.Session session) {
+     User user = session.getUser();
      while (true) {
          System.out.println("\n--- CUSTOMER MENU ---");
          System.out.println("1. View Products");
          System.out.println("2. Search by Category");
-         System.out.println("3. Add to Cart");
-         System.out.println("4. View Cart");
-         System.out.println("5. Checkout");
-         System.out.println("6. View Orders");
-         System.out.println("7. Logout");
+         System.out.println("3. Search Products");
+         System.out.println("4. Add to Cart");
+         System.out.println("5. Remove from Cart");
+         System.out.println("6. View Cart");
+         System.out.println("7. Checkout");
+         System.out.println("8. View Orders");
+         System.out.println("9. Logout");
 
-         int choice = sc.nextInt();
+         int choice = sc().nextInt();
+
+         if (sessionExpired(session)) return;
 
          try {
              switch (choice) {
                  case 1 -> viewProducts();
                  case 2 -> searchByCategory();
-                 case 3 -> addToCart(user);
-                 case 4 -> viewCart(user);
-                 case 5 -> checkout(user);
-                 case 6 -> user.viewOrders();
-                 case 7 -> { return; }
+                 case 3 -> searchProducts();
+                 case 4 -> addToCart(user);
+                 case 5 -> removeFromCart(user);
+                 case 6 -> viewCart(user);
+                 case 7 -> checkout(user);
+                 case 8 -> viewOrders(user);
+                 case 9 -> { return; }
                  default -> System.out.println("Invalid option!");
              }
          } catch (OutOfStockException e) {
@@ -321,20 +2749,49 @@ public class ECommerceApp {
      for (Category c : Category.values()) {
          System.out.println(c.ordinal() + 1 + ". " + c);
      }
-     int choice = sc.nextInt();
+     int choice = sc().nextInt();
      Category category = Category.values()[choice - 1];
 
-     products.values()
-             .stream()
-             .filter(p -> p.getCategory() == category)
-             .forEach(System.out::println);
+     List<Product> result = searchIndex.byCategory(category);
+
+     if (result.isEmpty()) {
+         System.out.println("No products in this category.");
+         return;
+     }
+
+     result.forEach(System.out::println);
+ }
+
+ static void searchProducts() {
+     sc().nextLine();
+     System.out.print("Search: ");
+     String query = sc().nextLine();
+
+     System.out.println("1. Match all terms");
+     System.out.println("2. Match any term");
+     int mode = sc().nextInt();
+
+     System.out.print("Prefix match (y/n): ");
+     boolean prefix = sc().next().equalsIgnoreCase("y");
+
+     Set<Integer> ids = (mode == 2)
+             ? searchIndex.searchAny(query, prefix)
+             : searchIndex.searchAll(query, prefix);
+
+     if (ids.isEmpty()) {
+         System.out.println("No matching products.");
+         return;
+     }
+
+     System.out.println(ids.size() + " match(es), top rated:");
+     searchIndex.topKByRating(ids, 10).forEach(System.out::println);
  }
 
  // ================= ADD TO CART =================
  static void addToCart(User user) throws OutOfStockException {
      viewProducts();
      System.out.print("Enter Product ID: ");
-     int id = sc.nextInt();
+     int id = sc().nextInt();
 
      Product product = products.get(id);
 
@@ -344,55 +2801,319 @@ public class ECommerceApp {
      }
 
      System.out.print("Quantity: ");
-     int quantity = sc.nextInt();
+     int quantity = sc().nextInt();
 
-     product.reduceStock(quantity);
-
-     for (int i = 0; i < quantity; i++) {
-         user.addToCart(product);
+     if (quantity <= 0) {
+         System.out.println("Invalid quantity!");
+         return;
      }
 
+     user.addToCart(product.reserve(quantity, CART_HOLD_MILLIS));
+
      System.out.println("Added to cart!");
  }
 
+ // ================= REMOVE FROM CART =================
+ static void removeFromCart(User user) {
+     System.out.print("Enter Product ID: ");
+     int id = sc().nextInt();
+
+     Product product = products.get(id);
+
+     if (product == null || user.getCart().getQuantity(id) == 0) {
+         System.out.println("Product not in cart!");
+         return;
+     }
+
+     int quantity = user.removeFromCart(product);
+     System.out.println("Removed " + quantity + " x " + product.getName() + " from cart.");
+ }
+
  // ================= VIEW CART =================
  static void viewCart(User user) {
-     List<Product> cart = user.getCart();
+     Cart cart = user.getCart();
 
      if (cart.isEmpty()) {
          System.out.println("Cart is empty.");
          return;
      }
 
-     double total = 0;
+     cart.forEach((id, quantity, amount) -> {
+         Product p = products.get(id);
+         System.out.println(p.getName() + " x " + quantity + " - ₹" + amount);
+     });
 
-     for (Product p : cart) {
-         System.out.println(p.getName() + " - ₹" + p.getFinalPrice());
-         total += p.getFinalPrice();
+     System.out.println("Total Amount: ₹" + cart.getTotal());
+ }
+
+ // ================= CHECKOUT =================
+ static void checkout(User user) throws OutOfStockException {
+     if (user.getCart().isEmpty()) {
+         System.out.println("Cart is empty.");
+         return;
      }
 
-     System.out.println("Total Amount: ₹" + total);
+     try {
+         Order order = checkoutPipeline.submit(user).join();
+         System.out.println("Checkout successful!");
+         System.out.println(order);
+     } catch (CompletionException e) {
+         if (e.getCause() instanceof OutOfStockException oos) {
+             throw oos;
+         }
+         System.out.println(e.getCause().getMessage());
+     }
  }
 
- // ================= CHECKOUT =================
- static void checkout(User user) {
-     List<Product> cart = user.getCart();
+ // ================= VIEW ORDERS =================
+ static void viewOrders(User user) {
+     int count = orderLog.countFor(user.getUsername());
 
-     if (cart.isEmpty()) {
-         System.out.println("Cart is empty.");
+     if (count == 0) {
+         System.out.println("No orders found.");
+         return;
+     }
+
+     int pages = (count + PAGE_SIZE - 1) / PAGE_SIZE;
+
+     try {
+         for (int page = 1; page <= pages; page++) {
+             orderLog.readPage(user.getUsername(), page, PAGE_SIZE).forEach(System.out::println);
+
+             if (page == pages) break;
+
+             System.out.print("Page " + page + "/" + pages + " - next page? (y/n): ");
+             if (!sc().next().equalsIgnoreCase("y")) break;
+         }
+     } catch (IOException e) {
+         System.out.println("Error reading order history.");
+     }
+ }
+
+ // ================= FLASH SALE SIMULATION =================
+ // Many buyers race for a small stock; verifies nothing is oversold and
+ // that abandoned reservations flow back into inventory after expiry.
+ static void simulateFlashSale() {
+     final int initialStock = 100;
+     final int buyers = 64;
+     final int attemptsPerBuyer = 50;
+
+     Product product = new Product(0, "Flash Deal", "Demo", "Flash sale item",
+             Category.ELECTRONICS, 999, 50, 5, initialStock, "Demo");
+
+     ExecutorService pool = Executors.newFixedThreadPool(buyers);
+     CountDownLatch start = new CountDownLatch(1);
+     AtomicInteger sold = new AtomicInteger();
+     AtomicInteger abandoned = new AtomicInteger();
+     List<Future<?>> futures = new ArrayList<>();
+
+     for (int b = 0; b < buyers; b++) {
+         final boolean abandons = b % 4 == 0;
+         futures.add(pool.submit(() -> {
+             start.await();
+             ThreadLocalRandom rnd = ThreadLocalRandom.current();
+             for (int i = 0; i < attemptsPerBuyer; i++) {
+                 int qty = 1 + rnd.nextInt(3);
+                 try {
+                     StockReservation r = product.reserve(qty, abandons ? 50 : CART_HOLD_MILLIS);
+                     if (abandons) {
+                         abandoned.addAndGet(qty);
+                     } else if (r.commit()) {
+                         sold.addAndGet(qty);
+                     }
+                 } catch (OutOfStockException e) {
+                     // sold out for this quantity, keep trying smaller ones
+                 }
+             }
+             return null;
+         }));
+     }
+
+     start.countDown();
+     try {
+         for (Future<?> f : futures) {
+             f.get();
+         }
+         Thread.sleep(200); // let abandoned holds expire
+     } catch (Exception e) {
+         System.out.println("Simulation interrupted: " + e.getMessage());
+     } finally {
+         pool.shutdown();
+     }
+
+     int remaining = product.getStock();
+     System.out.println("Buyers: " + buyers + " | Initial stock: " + initialStock);
+     System.out.println("Sold: " + sold.get() + " | Reserved then abandoned: " + abandoned.get()
+             + " | Back in stock: " + remaining);
+     System.out.println(sold.get() + remaining == initialStock && remaining >= 0
+             ? "PASS: no overselling, abandoned stock returned"
+             : "FAIL: stock accounting mismatch!");
+ }
+
+ // ================= CHECKOUT BURST SIMULATION =================
+ // Thousands of shoppers check out at once through a separate pipeline
+ static void simulateCheckoutBurst() {
+     final int shoppers = 5000;
+     final int stock = 8000;
+
+     Product product = new Product(0, "Burst Deal", "Demo", "Checkout burst item",
+             Category.HOME, 499, 10, 4.5, stock, "Demo");
+     Path logFile;
+     OrderLog store;
+     try {
+         logFile = Files.createTempFile("checkout-burst", ".log");
+         store = new OrderLog(logFile);
+     } catch (IOException e) {
+         System.out.println("Cannot create simulation order log.");
          return;
      }
+     CheckoutPipeline pipeline = new CheckoutPipeline(store, shoppers, 256);
+
+     ExecutorService pool = Executors.newFixedThreadPool(32);
+     CountDownLatch start = new CountDownLatch(1);
+     List<Future<CompletableFuture<Order>>> submitted = new ArrayList<>();
+     PasswordHasher.Hash password = PasswordHasher.hash("x");
+
+     for (int i = 0; i < shoppers; i++) {
+         User shopper = new User("shopper" + i, password, Role.CUSTOMER);
+         int quantity = 1 + i % 2;
+         submitted.add(pool.submit(() -> {
+             start.await();
+             shopper.addToCart(product.reserve(quantity, CART_HOLD_MILLIS));
+             return pipeline.submit(shopper);
+         }));
+     }
+
+     start.countDown();
+     int placed = 0;
+     int rejected = 0;
+     for (Future<CompletableFuture<Order>> f : submitted) {
+         try {
+             f.get().join();
+             placed++;
+         } catch (Exception e) {
+             rejected++;
+         }
+     }
+     pool.shutdown();
+
+     System.out.println("Shoppers: " + shoppers + " | Orders placed: " + placed
+             + " | Rejected/out of stock: " + rejected + " | Stored: " + store.size());
+     pipeline.printStats();
+     pipeline.shutdown();
+
+     try {
+         store.close();
+         Files.deleteIfExists(logFile);
+     } catch (IOException e) {
+         // temp file, nothing to recover
+     }
+ }
 
-     double total = cart.stream()
-             .mapToDouble(Product::getFinalPrice)
-             .sum();
+ // ================= CONCURRENT SHOPPERS SIMULATION =================
+ // Simulated clients log in together (a login storm) and then drive the
+ // customer menu with scripted input, while catalog read latency is sampled.
+ static void simulateConcurrentShoppers() {
+     final int clients = 200;
+     // Throwaway accounts with a password nobody else knows, removed
+     // again when the run ends
+     byte[] secret = new byte[18];
+     new SecureRandom().nextBytes(secret);
+     final String password = Base64.getUrlEncoder().withoutPadding().encodeToString(secret);
+     final String script = String.join("\n",
+             "2", "1",               // search by category: first category
+             "3", "phone", "2", "y", // keyword search, any term, prefix
+             "6",                    // view cart
+             "9") + "\n";           // logout
+
+     PasswordHasher.Hash hash = PasswordHasher.hash(password);
+     Map<String, User> simulated = new HashMap<>();
+     for (int i = 0; i < clients; i++) {
+         User user = new User("sim" + i, hash, Role.CUSTOMER);
+         if (users.putIfAbsent(user.getUsername(), user) == null) {
+             simulated.put(user.getUsername(), user);
+         }
+     }
 
-     String orderDetails = "Order placed | Total: ₹" + total + " | Items: " + cart.size();
+     ExecutorService pool = Executors.newFixedThreadPool(50);
+     CountDownLatch start = new CountDownLatch(1);
+     AtomicInteger loggedIn = new AtomicInteger();
+     AtomicInteger rejected = new AtomicInteger();
+     AtomicInteger failed = new AtomicInteger();
+     AtomicBoolean running = new AtomicBoolean(true);
+     List<Long> readLatencies = Collections.synchronizedList(new ArrayList<>());
+
+     Thread reader = new Thread(() -> {
+         while (running.get()) {
+             long t0 = System.nanoTime();
+             ratingIndex.page(1, PAGE_SIZE);
+             readLatencies.add(System.nanoTime() - t0);
+             try { Thread.sleep(1); } catch (InterruptedException e) { return; }
+         }
+     });
+
+     PrintStream console = System.out;
+     System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+     long t0 = System.nanoTime();
+     reader.start();
+     try {
+         List<Future<?>> futures = new ArrayList<>();
+         for (int i = 0; i < clients; i++) {
+             String username = "sim" + i;
+             futures.add(pool.submit(() -> {
+                 start.await();
+                 SessionService.Session session = null;
+                 while (session == null) {
+                     try {
+                         session = sessionService.login(username, password).join();
+                     } catch (CompletionException e) {
+                         if (!(e.getCause() instanceof RejectedExecutionException)) {
+                             failed.incrementAndGet();
+                             return null;
+                         }
+                         rejected.incrementAndGet();
+                         Thread.sleep(ThreadLocalRandom.current().nextInt(5, 50)); // back off and retry
+                     }
+                 }
+                 loggedIn.incrementAndGet();
+                 input.set(new Scanner(script));
+                 try {
+                     customerMenu(session);
+                 } catch (RuntimeException e) {
+                     failed.incrementAndGet();
+                 } finally {
+                     input.remove();
+                     sessionService.logout(session.getToken());
+                 }
+                 return null;
+             }));
+         }
+         start.countDown();
+         for (Future<?> f : futures) {
+             f.get();
+         }
+     } catch (Exception e) {
+         failed.incrementAndGet();
+     } finally {
+         running.set(false);
+         pool.shutdown();
+         System.setOut(console);
+         simulated.forEach(users::remove);
+     }
+     long elapsed = System.nanoTime() - t0;
 
-     user.addOrder(orderDetails);
-     user.clearCart();
+     long[] reads;
+     synchronized (readLatencies) {
+         reads = readLatencies.stream().mapToLong(Long::longValue).sorted().toArray();
+     }
 
-     System.out.println("Checkout successful!");
-     System.out.println(orderDetails);
+     System.out.println("Clients: " + clients + " | logged in: " + loggedIn.get()
+             + " | login retries (pool full): " + rejected.get() + " | errors: " + failed.get());
+     System.out.printf("Elapsed: %.0f ms | active sessions: %d%n", elapsed / 1e6, sessionService.activeSessions());
+     if (reads.length > 0) {
+         System.out.printf("Catalog page reads during storm: %d | p50: %.3f ms | p99: %.3f ms%n",
+                 reads.length, reads[reads.length / 2] / 1e6,
+                 reads[Math.min(reads.length - 1, (int) (reads.length * 0.99))] / 1e6);
+     }
  }
 }
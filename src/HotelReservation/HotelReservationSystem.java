@@ -1,9 +1,22 @@
 package HotelReservation;
 
+import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 // ================= CUSTOM EXCEPTIONS =================
 
@@ -20,79 +33,581 @@ class InvalidDateException extends Exception {
 }
 
 // ================= DISCOUNT STRATEGY =================
+// Strategies are stateless, so each has one shared instance
 
 interface DiscountStrategy {
     double applyDiscount(double amount);
 }
 
 class NoDiscount implements DiscountStrategy {
+    static final NoDiscount INSTANCE = new NoDiscount();
+
+    private NoDiscount() {}
+
     public double applyDiscount(double amount) {
         return amount;
     }
 }
 
 class SeasonalDiscount implements DiscountStrategy {
+    static final SeasonalDiscount INSTANCE = new SeasonalDiscount();
+
+    private SeasonalDiscount() {}
+
     public double applyDiscount(double amount) {
         return amount * 0.9; // 10% discount
     }
 }
 
 class PremiumCustomerDiscount implements DiscountStrategy {
+    static final PremiumCustomerDiscount INSTANCE = new PremiumCustomerDiscount();
+
+    private PremiumCustomerDiscount() {}
+
     public double applyDiscount(double amount) {
         return amount * 0.85; // 15% discount
     }
 }
 
+// Applies each discount in turn to the previous result
+class DiscountChain implements DiscountStrategy {
+    static final DiscountChain SEASONAL_PREMIUM =
+            new DiscountChain(SeasonalDiscount.INSTANCE, PremiumCustomerDiscount.INSTANCE);
+
+    private final DiscountStrategy[] steps;
+
+    public DiscountChain(DiscountStrategy... steps) {
+        this.steps = steps.clone();
+    }
+
+    public double applyDiscount(double amount) {
+        for (DiscountStrategy step : steps) {
+            amount = step.applyDiscount(amount);
+        }
+        return amount;
+    }
+}
+
+// ================= ROOM CALENDAR =================
+// Stays of one room as [check-in, check-out) epoch days, keyed by check-in.
+// Stays never overlap, so only the last stay starting before a range's end
+// can collide with it: availability is one TreeMap lookup, O(log n).
+
+class RoomCalendar {
+    private final TreeMap<Long, Long> stays = new TreeMap<>();
+
+    public boolean isFree(long checkIn, long checkOut) {
+        Map.Entry<Long, Long> before = stays.lowerEntry(checkOut);
+        return before == null || before.getValue() <= checkIn;
+    }
+
+    public boolean reserve(long checkIn, long checkOut) {
+        if (!isFree(checkIn, checkOut)) {
+            return false;
+        }
+        stays.put(checkIn, checkOut);
+        return true;
+    }
+
+    public boolean release(long checkIn, long checkOut) {
+        return stays.remove(checkIn, checkOut);
+    }
+}
+
 // ================= ROOM CLASS =================
 
 class Room {
     private int roomNumber;
     private String type;
     private double pricePerNight;
-    private boolean isBooked;
+    private final RoomCalendar calendar = new RoomCalendar();
 
     public Room(int roomNumber, String type, double pricePerNight) {
         this.roomNumber = roomNumber;
         this.type = type;
         this.pricePerNight = pricePerNight;
-        this.isBooked = false;
     }
 
-    public synchronized void bookRoom() throws RoomNotAvailableException {
-        if (isBooked) {
-            throw new RoomNotAvailableException("Room already booked!");
+    public synchronized void bookRoom(LocalDate checkIn, LocalDate checkOut) throws RoomNotAvailableException {
+        if (!calendar.reserve(checkIn.toEpochDay(), checkOut.toEpochDay())) {
+            throw new RoomNotAvailableException("Room already booked for these dates!");
         }
-        isBooked = true;
     }
 
-    public synchronized void checkoutRoom() {
-        isBooked = false;
+    public synchronized void checkoutRoom(LocalDate checkIn, LocalDate checkOut) {
+        calendar.release(checkIn.toEpochDay(), checkOut.toEpochDay());
+    }
+
+    public synchronized boolean isAvailable(LocalDate checkIn, LocalDate checkOut) {
+        return calendar.isFree(checkIn.toEpochDay(), checkOut.toEpochDay());
     }
 
     public int getRoomNumber() { return roomNumber; }
     public String getType() { return type; }
     public double getPricePerNight() { return pricePerNight; }
-    public boolean isBooked() { return isBooked; }
 
     @Override
     public String toString() {
+        LocalDate today = LocalDate.now();
         return "Room " + roomNumber + " | Type: " + type +
-                " | ₹" + pricePerNight + "/night | Available: " + !isBooked;
+                " | ₹" + pricePerNight + "/night | Available tonight: " + isAvailable(today, today.plusDays(1));
+    }
+}
+
+// ================= AVAILABILITY INDEX =================
+// Answers "which rooms of type T are free for [in, out)" without looking
+// at bookings. Rooms of a type sit in blocks of 64; word d of a block has
+// bit i set when the block's room i is booked on day d of the horizon. A
+// range query ORs a block's words for the nights and the clear bits are
+// the free rooms. Ranges outside the horizon fall back to room calendars.
+
+class AvailabilityIndex {
+
+    static final int HORIZON_DAYS = 730;
+
+    private static class TypeRooms {
+        final List<Room> rooms = new CopyOnWriteArrayList<>();       // slot order
+        final List<AtomicLongArray> blocks = new CopyOnWriteArrayList<>(); // never move once added
+        final AtomicLong version = new AtomicLong(); // bumped on every change
+    }
+
+    private final long firstDay = LocalDate.now().toEpochDay();
+    private final Map<String, TypeRooms> types = new ConcurrentHashMap<>();
+    private final Map<Integer, Integer> slots = new ConcurrentHashMap<>(); // room number -> slot in its type
+
+    public void addRoom(Room room) {
+        TypeRooms group = types.computeIfAbsent(room.getType().toLowerCase(), t -> new TypeRooms());
+        synchronized (group) {
+            int slot = group.rooms.size();
+            if (slot % 64 == 0) {
+                group.blocks.add(new AtomicLongArray(HORIZON_DAYS));
+            }
+            group.rooms.add(room);
+            slots.put(room.getRoomNumber(), slot);
+        }
+    }
+
+    // The calendar change and the index update happen under the room's lock,
+    // so the index sees changes to one room in the order they were made
+    public void book(Room room, LocalDate checkIn, LocalDate checkOut) throws RoomNotAvailableException {
+        synchronized (room) {
+            room.bookRoom(checkIn, checkOut);
+            mark(room, checkIn, checkOut, true);
+        }
+    }
+
+    public void release(Room room, LocalDate checkIn, LocalDate checkOut) {
+        synchronized (room) {
+            room.checkoutRoom(checkIn, checkOut);
+            mark(room, checkIn, checkOut, false);
+        }
+    }
+
+    private void mark(Room room, LocalDate checkIn, LocalDate checkOut, boolean booked) {
+        TypeRooms group = types.get(room.getType().toLowerCase());
+        Integer slot = slots.get(room.getRoomNumber());
+        if (group == null || slot == null) return;
+
+        AtomicLongArray block = group.blocks.get(slot / 64);
+        long bit = 1L << (slot % 64);
+        int from = (int) Math.max(0, checkIn.toEpochDay() - firstDay);
+        int to = (int) Math.min(HORIZON_DAYS, checkOut.toEpochDay() - firstDay);
+        for (int day = from; day < to; day++) {
+            block.getAndUpdate(day, word -> booked ? word | bit : word & ~bit);
+        }
+        group.version.incrementAndGet();
+    }
+
+    public long getFirstDay() {
+        return firstDay;
+    }
+
+    public long version(String type) {
+        TypeRooms group = types.get(type.toLowerCase());
+        return group == null ? 0 : group.version.get();
+    }
+
+    public int roomCount(String type) {
+        TypeRooms group = types.get(type.toLowerCase());
+        return group == null ? 0 : group.rooms.size();
+    }
+
+    // Rooms of the type booked on each night of the horizon
+    public int[] bookedPerNight(String type) {
+        int[] booked = new int[HORIZON_DAYS];
+        TypeRooms group = types.get(type.toLowerCase());
+        if (group == null) return booked;
+
+        for (AtomicLongArray block : group.blocks) {
+            for (int day = 0; day < HORIZON_DAYS; day++) {
+                booked[day] += Long.bitCount(block.get(day));
+            }
+        }
+        return booked;
+    }
+
+    public Set<String> getTypes() {
+        return types.keySet();
+    }
+
+    // Free rooms of the type, in the order they were added
+    public List<Room> freeRooms(String type, LocalDate checkIn, LocalDate checkOut) {
+        TypeRooms group = types.get(type.toLowerCase());
+        List<Room> free = new ArrayList<>();
+        if (group == null) return free;
+
+        long[] mask = freeMask(type, checkIn, checkOut);
+        for (int w = 0; w < mask.length; w++) {
+            for (long bits = mask[w]; bits != 0; bits &= bits - 1) {
+                free.add(group.rooms.get(w * 64 + Long.numberOfTrailingZeros(bits)));
+            }
+        }
+        return free;
+    }
+
+    // Bit i set when the type's room in slot i is free for the whole range
+    public long[] freeMask(String type, LocalDate checkIn, LocalDate checkOut) {
+        TypeRooms group = types.get(type.toLowerCase());
+        if (group == null) return new long[0];
+
+        int roomCount = group.rooms.size();
+        long[] mask = new long[(roomCount + 63) / 64];
+        int from = (int) (checkIn.toEpochDay() - firstDay);
+        int to = (int) (checkOut.toEpochDay() - firstDay);
+
+        if (from < 0 || to > HORIZON_DAYS) {
+            for (int slot = 0; slot < roomCount; slot++) {
+                if (group.rooms.get(slot).isAvailable(checkIn, checkOut)) {
+                    mask[slot / 64] |= 1L << (slot % 64);
+                }
+            }
+            return mask;
+        }
+
+        for (int b = 0; b < mask.length; b++) {
+            mask[b] = ~bookedMask(group.blocks.get(b), from, to);
+        }
+        if (roomCount % 64 != 0) {
+            mask[mask.length - 1] &= (1L << (roomCount % 64)) - 1; // slots not yet used
+        }
+        return mask;
+    }
+
+    public int slotOf(Room room) {
+        return slots.getOrDefault(room.getRoomNumber(), -1);
+    }
+
+    // Rooms of the block booked on any night in [from, to)
+    private static long bookedMask(AtomicLongArray block, int from, int to) {
+        long booked = 0;
+        for (int day = from; day < to && booked != -1L; day++) {
+            booked |= block.get(day);
+        }
+        return booked;
+    }
+}
+
+// ================= ROOM SEARCH INDEX =================
+// Rooms ordered by price, per type and across all types. A search walks
+// the price band in order and keeps rooms whose bit is set in the type's
+// free mask from the availability index, so the two result sets are
+// intersected with one bit test per candidate.
+
+class RoomSearchIndex {
+
+    static final String ANY = "any";
+
+    record Page(List<Room> rooms, int page, int totalMatches, int pageSize) {
+        int totalPages() { return (totalMatches + pageSize - 1) / pageSize; }
+    }
+
+    private final AvailabilityIndex availability;
+    private final Map<String, NavigableMap<Double, List<Room>>> byPrice = new ConcurrentHashMap<>();
+
+    public RoomSearchIndex(AvailabilityIndex availability) {
+        this.availability = availability;
+    }
+
+    public void addRoom(Room room) {
+        for (String key : new String[]{room.getType().toLowerCase(), ANY}) {
+            byPrice.computeIfAbsent(key, k -> new ConcurrentSkipListMap<>())
+                   .computeIfAbsent(room.getPricePerNight(), p -> new CopyOnWriteArrayList<>())
+                   .add(room);
+        }
+    }
+
+    // Type may be ANY; results are cheapest first, page is 1-based
+    public Page search(String type, double minPrice, double maxPrice,
+                       LocalDate checkIn, LocalDate checkOut, int page, int pageSize) {
+
+        NavigableMap<Double, List<Room>> prices = byPrice.get(type.toLowerCase());
+        List<Room> results = new ArrayList<>(pageSize);
+        if (prices == null || minPrice > maxPrice) {
+            return new Page(results, page, 0, pageSize);
+        }
+
+        Map<String, long[]> freeByType = new HashMap<>();
+        int skip = (page - 1) * pageSize;
+        int matches = 0;
+
+        for (List<Room> samePrice : prices.subMap(minPrice, true, maxPrice, true).values()) {
+            for (Room room : samePrice) {
+                long[] free = freeByType.computeIfAbsent(room.getType().toLowerCase(),
+                        t -> availability.freeMask(t, checkIn, checkOut));
+                int slot = availability.slotOf(room);
+                if (slot < 0 || slot / 64 >= free.length || (free[slot / 64] & (1L << (slot % 64))) == 0) {
+                    continue;
+                }
+                if (matches >= skip && results.size() < pageSize) {
+                    results.add(room);
+                }
+                matches++;
+            }
+        }
+        return new Page(results, page, matches, pageSize);
+    }
+}
+
+// ================= PRICING ENGINE =================
+// Nightly rate = room price x weekend x season x occupancy factor. The
+// factors only depend on the room type and the night, so each type gets a
+// table of prefix sums over the availability horizon: the base amount of
+// any stay is price x (sum[out] - sum[in]), two array reads. A table is
+// rebuilt when its type's bookings changed, at most once per REFRESH.
+
+class PricingEngine {
+
+    static final long REFRESH_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private static final class RateTable {
+        final double[] prefix; // prefix[d] = sum of factors for nights 0..d-1
+        final long version;
+        final long builtAt;
+
+        RateTable(double[] prefix, long version) {
+            this.prefix = prefix;
+            this.version = version;
+            this.builtAt = System.nanoTime();
+        }
+    }
+
+    private final AvailabilityIndex availability;
+    private final Map<String, RateTable> tables = new ConcurrentHashMap<>();
+
+    public PricingEngine(AvailabilityIndex availability) {
+        this.availability = availability;
+    }
+
+    static double weekendFactor(LocalDate night) {
+        DayOfWeek day = night.getDayOfWeek();
+        return day == DayOfWeek.FRIDAY || day == DayOfWeek.SATURDAY ? 1.2 : 1.0;
+    }
+
+    static double seasonFactor(LocalDate night) {
+        switch (night.getMonth()) {
+            case DECEMBER: case MAY: case JUNE: return 1.25; // peak
+            case JULY: case AUGUST: return 0.9;              // monsoon
+            default: return 1.0;
+        }
+    }
+
+    static double occupancyFactor(int booked, int rooms) {
+        if (rooms == 0) return 1.0;
+        double occupancy = (double) booked / rooms;
+        if (occupancy >= 0.8) return 1.3;
+        if (occupancy >= 0.5) return 1.1;
+        return 1.0;
+    }
+
+    private RateTable table(String type) {
+        String key = type.toLowerCase();
+        long version = availability.version(key);
+        RateTable table = tables.get(key);
+        if (table == null || (table.version != version && System.nanoTime() - table.builtAt >= REFRESH_NANOS)) {
+            table = build(key, version);
+            tables.put(key, table);
+        }
+        return table;
+    }
+
+    private RateTable build(String type, long version) {
+        int[] booked = availability.bookedPerNight(type);
+        int rooms = availability.roomCount(type);
+        LocalDate first = LocalDate.ofEpochDay(availability.getFirstDay());
+
+        double[] prefix = new double[AvailabilityIndex.HORIZON_DAYS + 1];
+        for (int day = 0; day < AvailabilityIndex.HORIZON_DAYS; day++) {
+            LocalDate night = first.plusDays(day);
+            prefix[day + 1] = prefix[day]
+                    + weekendFactor(night) * seasonFactor(night) * occupancyFactor(booked[day], rooms);
+        }
+        return new RateTable(prefix, version);
+    }
+
+    // Sum of nightly factors for [in, out); nights inside the horizon come
+    // from the table, nights outside it are priced without the occupancy factor
+    public double factorSum(String type, LocalDate checkIn, LocalDate checkOut) {
+        long firstDay = availability.getFirstDay();
+        long from = checkIn.toEpochDay() - firstDay;
+        long to = checkOut.toEpochDay() - firstDay;
+        long inFrom = Math.max(from, 0);
+        long inTo = Math.min(to, AvailabilityIndex.HORIZON_DAYS);
+
+        double sum = 0;
+        if (inFrom < inTo) {
+            double[] prefix = table(type).prefix;
+            sum = prefix[(int) inTo] - prefix[(int) inFrom];
+        }
+        for (long day = from; day < Math.min(to, 0); day++) {
+            sum += plainFactor(LocalDate.ofEpochDay(firstDay + day));
+        }
+        for (long day = Math.max(from, AvailabilityIndex.HORIZON_DAYS); day < to; day++) {
+            sum += plainFactor(LocalDate.ofEpochDay(firstDay + day));
+        }
+        return sum;
+    }
+
+    private static double plainFactor(LocalDate night) {
+        return weekendFactor(night) * seasonFactor(night);
+    }
+
+    // Factor sums of stays of stayLength nights starting on each of the
+    // given nights; one table lookup per type instead of one per quote
+    public double[] stayFactors(String type, LocalDate firstNight, int nights, int stayLength) {
+        double[] sums = new double[nights];
+        int from = (int) (firstNight.toEpochDay() - availability.getFirstDay());
+        if (from >= 0 && from + nights + stayLength <= AvailabilityIndex.HORIZON_DAYS + 1) {
+            double[] prefix = table(type).prefix;
+            for (int d = 0; d < nights; d++) {
+                sums[d] = prefix[from + d + stayLength] - prefix[from + d];
+            }
+            return sums;
+        }
+        for (int d = 0; d < nights; d++) {
+            LocalDate checkIn = firstNight.plusDays(d);
+            sums[d] = factorSum(type, checkIn, checkIn.plusDays(stayLength));
+        }
+        return sums;
+    }
+
+    // Amounts are rounded to paise
+    public double baseAmount(Room room, LocalDate checkIn, LocalDate checkOut) {
+        return Math.round(room.getPricePerNight() * factorSum(room.getType(), checkIn, checkOut) * 100) / 100.0;
+    }
+
+    public double quote(Room room, LocalDate checkIn, LocalDate checkOut, DiscountStrategy discount) {
+        return Math.round(discount.applyDiscount(baseAmount(room, checkIn, checkOut)) * 100) / 100.0;
+    }
+}
+
+// ================= BULK QUOTES (FORK/JOIN) =================
+// Prices every room for a stay starting on each of the next N nights.
+// Rooms are copied into primitive arrays, the per-type stay factors are
+// computed once, and fork/join splits the rooms across cores; each task
+// writes its rows of the result array, so nothing is merged afterwards.
+
+class BulkQuoter {
+
+    private static final int ROOMS_PER_TASK = 32;
+
+    // amounts[room * nights + night] is the quote for roomNumbers[room]
+    record Quotes(int[] roomNumbers, LocalDate firstNight, int nights, int stayLength, double[] amounts) {
+        double amount(int room, int night) { return amounts[room * nights + night]; }
+        int count() { return amounts.length; }
+    }
+
+    private final PricingEngine pricing;
+
+    public BulkQuoter(PricingEngine pricing) {
+        this.pricing = pricing;
+    }
+
+    public Quotes quoteAll(Collection<Room> rooms, LocalDate firstNight, int nights, int stayLength,
+                           DiscountStrategy discount, boolean parallel) {
+
+        List<Room> snapshot = new ArrayList<>(rooms);
+        int count = snapshot.size();
+        int[] roomNumbers = new int[count];
+        double[] prices = new double[count];
+        double[][] factors = new double[count][];
+        Map<String, double[]> byType = new HashMap<>();
+
+        for (int i = 0; i < count; i++) {
+            Room room = snapshot.get(i);
+            roomNumbers[i] = room.getRoomNumber();
+            prices[i] = room.getPricePerNight();
+            factors[i] = byType.computeIfAbsent(room.getType().toLowerCase(),
+                    t -> pricing.stayFactors(t, firstNight, nights, stayLength));
+        }
+
+        double[] amounts = new double[count * nights];
+        QuoteTask task = new QuoteTask(0, count, nights, prices, factors, discount, amounts);
+        if (parallel) {
+            ForkJoinPool.commonPool().invoke(task);
+        } else {
+            task.quoteRows();
+        }
+        return new Quotes(roomNumbers, firstNight, nights, stayLength, amounts);
+    }
+
+    @SuppressWarnings("serial") // tasks are never serialized
+    private static class QuoteTask extends RecursiveAction {
+        private final int from, to, nights;
+        private final double[] prices;
+        private final double[][] factors;
+        private final DiscountStrategy discount;
+        private final double[] amounts;
+
+        QuoteTask(int from, int to, int nights, double[] prices, double[][] factors,
+                  DiscountStrategy discount, double[] amounts) {
+            this.from = from;
+            this.to = to;
+            this.nights = nights;
+            this.prices = prices;
+            this.factors = factors;
+            this.discount = discount;
+            this.amounts = amounts;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= ROOMS_PER_TASK) {
+                quoteRows();
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new QuoteTask(from, mid, nights, prices, factors, discount, amounts),
+                      new QuoteTask(mid, to, nights, prices, factors, discount, amounts));
+        }
+
+        void quoteRows() {
+            for (int room = from; room < to; room++) {
+                double price = prices[room];
+                double[] stay = factors[room];
+                int row = room * nights;
+                for (int night = 0; night < nights; night++) {
+                    double base = Math.round(price * stay[night] * 100) / 100.0; // as PricingEngine.quote
+                    amounts[row + night] = Math.round(discount.applyDiscount(base) * 100) / 100.0;
+                }
+            }
+        }
     }
 }
 
 // ================= BOOKING CLASS =================
 
 class Booking {
+    private int bookingId;
     private Room room;
     private String customerName;
     private LocalDate checkIn;
     private LocalDate checkOut;
     private double totalAmount;
 
-    public Booking(Room room, String customerName,
+    public Booking(int bookingId, Room room, String customerName,
                    LocalDate checkIn, LocalDate checkOut,
                    double totalAmount) {
+        this.bookingId = bookingId;
         this.room = room;
         this.customerName = customerName;
         this.checkIn = checkIn;
@@ -100,13 +615,17 @@ class Booking {
         this.totalAmount = totalAmount;
     }
 
+    public int getBookingId() { return bookingId; }
     public Room getRoom() { return room; }
+    public LocalDate getCheckIn() { return checkIn; }
+    public LocalDate getCheckOut() { return checkOut; }
     public double getTotalAmount() { return totalAmount; }
     public String getCustomerName() { return customerName; }
 
     @Override
     public String toString() {
         return "\nBooking Details:" +
+                "\nBooking ID: " + bookingId +
                 "\nCustomer: " + customerName +
                 "\nRoom: " + room.getRoomNumber() +
                 "\nCheck-in: " + checkIn +
@@ -115,20 +634,65 @@ class Booking {
     }
 }
 
+// ================= RESERVATION SERVICE =================
+// Claims a room's dates and records the booking as one step under that
+// room's lock, so there is no global lock: bookings of different rooms
+// never wait on each other. Removing a booking from the concurrent store
+// is what settles a checkout or cancel, so only one of them can win.
+
+class ReservationService {
+
+    private final AvailabilityIndex availability;
+    private final Map<Integer, Booking> bookings = new ConcurrentHashMap<>();
+    private final AtomicInteger nextBookingId = new AtomicInteger(1);
+
+    public ReservationService(AvailabilityIndex availability) {
+        this.availability = availability;
+    }
+
+    public Booking reserve(Room room, String customerName, LocalDate checkIn, LocalDate checkOut,
+                           double totalAmount) throws RoomNotAvailableException {
+        synchronized (room) {
+            availability.book(room, checkIn, checkOut);
+            Booking booking = new Booking(nextBookingId.getAndIncrement(), room, customerName,
+                    checkIn, checkOut, totalAmount);
+            bookings.put(booking.getBookingId(), booking);
+            return booking;
+        }
+    }
+
+    // The removed booking, or null if it was already checked out or cancelled
+    public Booking release(int bookingId) {
+        Booking booking = bookings.remove(bookingId);
+        if (booking != null) {
+            availability.release(booking.getRoom(), booking.getCheckIn(), booking.getCheckOut());
+        }
+        return booking;
+    }
+
+    public Collection<Booking> getBookings() {
+        return bookings.values();
+    }
+}
+
 // ================= MAIN APPLICATION =================
 
 public class HotelReservationSystem {
 
     static Scanner sc = new Scanner(System.in);
     static Map<Integer, Room> rooms = new ConcurrentHashMap<>();
-    static Map<Integer, Booking> bookings = new HashMap<>();
+    static AvailabilityIndex availability = new AvailabilityIndex();
+    static RoomSearchIndex search = new RoomSearchIndex(availability);
+    static ReservationService reservations = new ReservationService(availability);
+    static PricingEngine pricing = new PricingEngine(availability);
+    static BulkQuoter quoter = new BulkQuoter(pricing);
 
     public static void main(String[] args) {
 
         // Predefined Rooms
-        rooms.put(101, new Room(101, "Standard", 2000));
-        rooms.put(102, new Room(102, "Deluxe", 3500));
-        rooms.put(201, new Room(201, "Suite", 5000));
+        addRoom(new Room(101, "Standard", 2000));
+        addRoom(new Room(102, "Deluxe", 3500));
+        addRoom(new Room(201, "Suite", 5000));
 
         while (true) {
             System.out.println("\n===== HOTEL RESERVATION SYSTEM =====");
@@ -136,7 +700,12 @@ public class HotelReservationSystem {
             System.out.println("2. Book Room");
             System.out.println("3. Check-out");
             System.out.println("4. Cancel Booking");
-            System.out.println("5. Exit");
+            System.out.println("5. Find Free Rooms");
+            System.out.println("6. Search Rooms");
+            System.out.println("7. Load Demo Hotel Chain");
+            System.out.println("8. Stress Test Concurrent Bookings");
+            System.out.println("9. Bulk Quote All Rooms (Next 365 Nights)");
+            System.out.println("10. Exit");
 
             int choice = sc.nextInt();
 
@@ -146,7 +715,12 @@ public class HotelReservationSystem {
                     case 2: bookRoom(); break;
                     case 3: checkout(); break;
                     case 4: cancelBooking(); break;
-                    case 5: System.exit(0);
+                    case 5: findFreeRooms(); break;
+                    case 6: searchRooms(); break;
+                    case 7: loadDemoChain(); break;
+                    case 8: stressTest(); break;
+                    case 9: bulkQuote(); break;
+                    case 10: System.exit(0);
                     default: System.out.println("Invalid option!");
                 }
             } catch (Exception e) {
@@ -155,6 +729,12 @@ public class HotelReservationSystem {
         }
     }
 
+    static void addRoom(Room room) {
+        rooms.put(room.getRoomNumber(), room);
+        availability.addRoom(room);
+        search.addRoom(room);
+    }
+
     // ================= VIEW ROOMS =================
     static void viewRooms() {
         rooms.values().forEach(System.out::println);
@@ -182,35 +762,36 @@ public class HotelReservationSystem {
         System.out.print("Check-out date (YYYY-MM-DD): ");
         LocalDate checkOut = LocalDate.parse(sc.next());
 
-        if (checkOut.isBefore(checkIn)) {
+        if (!checkOut.isAfter(checkIn)) {
             throw new InvalidDateException("Check-out must be after check-in!");
         }
 
         long nights = ChronoUnit.DAYS.between(checkIn, checkOut);
-        double baseAmount = nights * room.getPricePerNight();
+        double baseAmount = pricing.baseAmount(room, checkIn, checkOut);
+        System.out.printf("%d nights, ₹%.2f (avg ₹%.2f/night incl. weekend, season and occupancy rates)%n",
+                nights, baseAmount, baseAmount / nights);
 
         // Select Discount Strategy
         System.out.println("Select Discount:");
         System.out.println("1. No Discount");
         System.out.println("2. Seasonal Discount (10%)");
         System.out.println("3. Premium Customer (15%)");
+        System.out.println("4. Seasonal + Premium");
 
         int discountChoice = sc.nextInt();
 
         DiscountStrategy strategy;
 
         switch (discountChoice) {
-            case 2: strategy = new SeasonalDiscount(); break;
-            case 3: strategy = new PremiumCustomerDiscount(); break;
-            default: strategy = new NoDiscount();
+            case 2: strategy = SeasonalDiscount.INSTANCE; break;
+            case 3: strategy = PremiumCustomerDiscount.INSTANCE; break;
+            case 4: strategy = DiscountChain.SEASONAL_PREMIUM; break;
+            default: strategy = NoDiscount.INSTANCE;
         }
 
-        double finalAmount = strategy.applyDiscount(baseAmount);
+        double finalAmount = Math.round(strategy.applyDiscount(baseAmount) * 100) / 100.0;
 
-        room.bookRoom();
-
-        Booking booking = new Booking(room, name, checkIn, checkOut, finalAmount);
-        bookings.put(roomNo, booking);
+        Booking booking = reservations.reserve(room, name, checkIn, checkOut, finalAmount);
 
         System.out.println("Booking Successful!");
         System.out.println(booking);
@@ -219,10 +800,10 @@ public class HotelReservationSystem {
     // ================= CHECKOUT =================
     static void checkout() {
 
-        System.out.print("Enter Room Number: ");
-        int roomNo = sc.nextInt();
+        System.out.print("Enter Booking ID: ");
+        int bookingId = sc.nextInt();
 
-        Booking booking = bookings.get(roomNo);
+        Booking booking = reservations.release(bookingId);
 
         if (booking == null) {
             System.out.println("No booking found.");
@@ -232,19 +813,16 @@ public class HotelReservationSystem {
         System.out.println("Processing Payment...");
         System.out.println("Payment Successful! ₹" + booking.getTotalAmount());
 
-        booking.getRoom().checkoutRoom();
-        bookings.remove(roomNo);
-
         System.out.println("Check-out completed.");
     }
 
     // ================= CANCEL BOOKING =================
     static void cancelBooking() {
 
-        System.out.print("Enter Room Number: ");
-        int roomNo = sc.nextInt();
+        System.out.print("Enter Booking ID: ");
+        int bookingId = sc.nextInt();
 
-        Booking booking = bookings.get(roomNo);
+        Booking booking = reservations.release(bookingId);
 
         if (booking == null) {
             System.out.println("No booking found.");
@@ -253,10 +831,227 @@ public class HotelReservationSystem {
 
         double refund = booking.getTotalAmount() * 0.8; // 80% refund
 
-        booking.getRoom().checkoutRoom();
-        bookings.remove(roomNo);
-
         System.out.println("Booking Cancelled.");
         System.out.println("Refund Amount: ₹" + refund);
     }
+
+    // ================= FIND FREE ROOMS =================
+    static void findFreeRooms() throws InvalidDateException {
+
+        System.out.print("Room Type " + availability.getTypes() + ": ");
+        String type = sc.next();
+
+        System.out.print("Check-in date (YYYY-MM-DD): ");
+        LocalDate checkIn = LocalDate.parse(sc.next());
+
+        System.out.print("Check-out date (YYYY-MM-DD): ");
+        LocalDate checkOut = LocalDate.parse(sc.next());
+
+        if (!checkOut.isAfter(checkIn)) {
+            throw new InvalidDateException("Check-out must be after check-in!");
+        }
+
+        List<Room> free = availability.freeRooms(type, checkIn, checkOut);
+        if (free.isEmpty()) {
+            System.out.println("No free " + type + " rooms for these dates.");
+            return;
+        }
+        free.forEach(room -> System.out.println("Room " + room.getRoomNumber() + " | ₹" + room.getPricePerNight() + "/night"));
+    }
+
+    // ================= SEARCH ROOMS =================
+    static void searchRooms() throws InvalidDateException {
+
+        System.out.print("Room Type " + availability.getTypes() + " or any: ");
+        String type = sc.next();
+
+        System.out.print("Min price per night: ");
+        double minPrice = sc.nextDouble();
+
+        System.out.print("Max price per night: ");
+        double maxPrice = sc.nextDouble();
+
+        System.out.print("Check-in date (YYYY-MM-DD): ");
+        LocalDate checkIn = LocalDate.parse(sc.next());
+
+        System.out.print("Check-out date (YYYY-MM-DD): ");
+        LocalDate checkOut = LocalDate.parse(sc.next());
+
+        if (!checkOut.isAfter(checkIn)) {
+            throw new InvalidDateException("Check-out must be after check-in!");
+        }
+
+        int page = 1;
+        while (true) {
+            long start = System.nanoTime();
+            RoomSearchIndex.Page result = search.search(type, minPrice, maxPrice, checkIn, checkOut, page, 10);
+            long micros = (System.nanoTime() - start) / 1000;
+
+            if (result.totalMatches() == 0) {
+                System.out.println("No matching rooms.");
+                return;
+            }
+
+            result.rooms().forEach(System.out::println);
+            System.out.println("Page " + page + " of " + result.totalPages()
+                    + " | " + result.totalMatches() + " matches | " + micros + " µs");
+
+            if (page >= result.totalPages()) return;
+            System.out.print("Next page? (y/n): ");
+            if (!sc.next().equalsIgnoreCase("y")) return;
+            page++;
+        }
+    }
+
+    // ================= DEMO HOTEL CHAIN =================
+    // Adds 20,000 rooms with random occupied stays (no booking records) so
+    // searches run at chain scale
+    static void loadDemoChain() {
+
+        String[] types = {"Standard", "Deluxe", "Suite"};
+        double[] basePrices = {1500, 3000, 5000};
+        Random random = new Random(42);
+        LocalDate today = LocalDate.now();
+        int firstRoom = 10_000;
+        int count = 20_000;
+        int added = 0;
+        int booked = 0;
+
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            int t = random.nextInt(types.length);
+            double price = basePrices[t] + 100 * random.nextInt(20);
+            Room room = new Room(firstRoom + i, types[t], price);
+            if (rooms.containsKey(room.getRoomNumber())) continue;
+            addRoom(room);
+            added++;
+
+            for (int stay = 0; stay < 10; stay++) {
+                LocalDate checkIn = today.plusDays(random.nextInt(365));
+                try {
+                    availability.book(room, checkIn, checkIn.plusDays(1 + random.nextInt(7)));
+                    booked++;
+                } catch (RoomNotAvailableException e) {
+                    // overlaps an earlier demo stay; skip it
+                }
+            }
+        }
+        System.out.printf("Loaded %,d rooms with %,d stays in %d ms.%n",
+                added, booked, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    // ================= STRESS TEST =================
+    // Many threads book and cancel random date ranges on a small private
+    // hotel, then every room's bookings are checked for overlaps and
+    // against the room calendar and availability index.
+    static void stressTest() throws InterruptedException {
+
+        int threads = Math.max(16, Runtime.getRuntime().availableProcessors() * 4);
+        int attemptsPerThread = 20_000;
+        int roomCount = 50;
+        LocalDate today = LocalDate.now();
+
+        AvailabilityIndex index = new AvailabilityIndex();
+        ReservationService service = new ReservationService(index);
+        List<Room> hotel = new ArrayList<>();
+        for (int i = 0; i < roomCount; i++) {
+            Room room = new Room(i + 1, i % 2 == 0 ? "Standard" : "Deluxe", 2000);
+            hotel.add(room);
+            index.addRoom(room);
+        }
+
+        AtomicInteger booked = new AtomicInteger();
+        AtomicInteger conflicts = new AtomicInteger();
+        AtomicInteger cancelled = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(threads);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            pool.execute(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < attemptsPerThread; i++) {
+                    Room room = hotel.get(random.nextInt(roomCount));
+                    LocalDate checkIn = today.plusDays(random.nextInt(60));
+                    LocalDate checkOut = checkIn.plusDays(1 + random.nextInt(5));
+                    try {
+                        Booking booking = service.reserve(room, "guest", checkIn, checkOut, 0);
+                        booked.incrementAndGet();
+                        if (random.nextInt(3) == 0 && service.release(booking.getBookingId()) != null) {
+                            cancelled.incrementAndGet();
+                        }
+                    } catch (RoomNotAvailableException e) {
+                        conflicts.incrementAndGet();
+                    }
+                }
+                done.countDown();
+            });
+        }
+        done.await();
+        long elapsed = System.nanoTime() - start;
+        pool.shutdown();
+        pool.awaitTermination(5, TimeUnit.SECONDS);
+
+        // Verify: no two live bookings of a room overlap, and the calendar
+        // and index agree with the bookings store night by night
+        Map<Room, List<Booking>> byRoom = new HashMap<>();
+        for (Booking booking : service.getBookings()) {
+            byRoom.computeIfAbsent(booking.getRoom(), r -> new ArrayList<>()).add(booking);
+        }
+
+        int doubleBookings = 0;
+        int mismatches = 0;
+        for (Room room : hotel) {
+            List<Booking> stays = byRoom.getOrDefault(room, new ArrayList<>());
+            stays.sort(Comparator.comparing(Booking::getCheckIn));
+            for (int i = 1; i < stays.size(); i++) {
+                if (stays.get(i).getCheckIn().isBefore(stays.get(i - 1).getCheckOut())) doubleBookings++;
+            }
+
+            for (int day = 0; day < 66; day++) {
+                LocalDate night = today.plusDays(day);
+                boolean taken = false;
+                for (Booking b : stays) {
+                    taken |= !night.isBefore(b.getCheckIn()) && night.isBefore(b.getCheckOut());
+                }
+                boolean indexedFree = index.freeRooms(room.getType(), night, night.plusDays(1)).contains(room);
+                if (taken == room.isAvailable(night, night.plusDays(1)) || taken == indexedFree) mismatches++;
+            }
+        }
+
+        int attempts = threads * attemptsPerThread;
+        System.out.printf("Threads: %d | %,d attempts in %d ms (%,.0f/sec)%n",
+                threads, attempts, elapsed / 1_000_000, attempts / (elapsed / 1e9));
+        System.out.printf("Booked: %,d | Conflicts: %,d | Cancelled: %,d | Live: %,d%n",
+                booked.get(), conflicts.get(), cancelled.get(), service.getBookings().size());
+        System.out.println("Double bookings: " + doubleBookings + " | Calendar/index mismatches: " + mismatches
+                + (doubleBookings == 0 && mismatches == 0 ? " | PASS" : " | FAIL"));
+    }
+
+    // ================= BULK QUOTE =================
+    // Quotes every room for a stay starting on each of the next 365 nights,
+    // sequentially and with fork/join, and reports quotes/sec
+    static void bulkQuote() {
+
+        System.out.print("Stay length (nights): ");
+        int stayLength = sc.nextInt();
+        if (stayLength <= 0) {
+            System.out.println("Stay length must be positive.");
+            return;
+        }
+
+        LocalDate tomorrow = LocalDate.now().plusDays(1);
+        DiscountStrategy discount = NoDiscount.INSTANCE;
+
+        for (boolean parallel : new boolean[]{false, true}) {
+            long start = System.nanoTime();
+            BulkQuoter.Quotes quotes = quoter.quoteAll(rooms.values(), tomorrow, 365, stayLength, discount, parallel);
+            long elapsed = System.nanoTime() - start;
+
+            System.out.printf("%-10s %,d rooms x 365 nights = %,d quotes in %.1f ms | %,.0f quotes/sec%n",
+                    parallel ? "Fork/join:" : "Single:", quotes.roomNumbers().length, quotes.count(),
+                    elapsed / 1e6, quotes.count() / (elapsed / 1e9));
+        }
+        System.out.println("Cores: " + Runtime.getRuntime().availableProcessors());
+    }
 }
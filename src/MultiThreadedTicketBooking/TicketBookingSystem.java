@@ -1,7 +1,22 @@
 package MultiThreadedTicketBooking;
 
+import java.io.*;
+import java.lang.management.LockInfo;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MonitorInfo;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 // ================= CUSTOM EXCEPTION =================
 class SeatNotAvailableException extends Exception {
@@ -10,6 +25,25 @@ class SeatNotAvailableException extends Exception {
     }
 }
 
+class EventNotFoundException extends Exception {
+    public EventNotFoundException(String message) {
+        super(message);
+    }
+}
+
+class InvalidCancellationException extends Exception {
+    public InvalidCancellationException(String message) {
+        super(message);
+    }
+}
+
+// Async request refused because too many are already pending
+class BookingRejectedException extends Exception {
+    public BookingRejectedException(String message) {
+        super(message);
+    }
+}
+
 // ================= TICKET CLASS =================
 class Ticket {
     private int seatNumber;
@@ -29,71 +63,1043 @@ class Ticket {
     }
 }
 
+// ================= SEAT PREFERENCE =================
+// Where a group block should sit: the block nearest the target seat wins
+enum SeatPreference {
+    FRONT,
+    CENTER,
+    BACK;
+
+    int targetSeat(int totalSeats) {
+        switch (this) {
+            case FRONT: return 1;
+            case BACK: return totalSeats;
+            default: return (totalSeats + 1) / 2;
+        }
+    }
+}
+
+// ================= SEAT BITMAP =================
+// One bit per seat (1 = taken) in an AtomicLongArray. Claims are a CAS on
+// a single word, counts are one bitCount per 64 seats, and free runs are
+// found by skipping whole full/empty words.
+class SeatBitmap {
+
+    private final AtomicLongArray words;
+    private final int totalSeats;
+    private final LongAdder casRetries = new LongAdder(); // CAS lost to a concurrent update
+
+    public SeatBitmap(int totalSeats) {
+        this.totalSeats = totalSeats;
+        this.words = new AtomicLongArray((totalSeats + 63) >>> 6);
+    }
+
+    public int getTotalSeats() { return totalSeats; }
+
+    // How often a claim or release had to retry because another thread
+    // changed the same word first: the contention on this venue
+    public long getCasRetries() { return casRetries.sum(); }
+
+    // Seats are 1-based
+    public boolean tryClaim(int seat) {
+        int index = (seat - 1) >>> 6;
+        long bit = 1L << (seat - 1);
+        while (true) {
+            long word = words.get(index);
+            if ((word & bit) != 0) {
+                return false;
+            }
+            if (words.compareAndSet(index, word, word | bit)) {
+                return true;
+            }
+            casRetries.increment();
+        }
+    }
+
+    public boolean release(int seat) {
+        int index = (seat - 1) >>> 6;
+        long bit = 1L << (seat - 1);
+        while (true) {
+            long word = words.get(index);
+            if ((word & bit) == 0) {
+                return false;
+            }
+            if (words.compareAndSet(index, word, word & ~bit)) {
+                return true;
+            }
+            casRetries.increment();
+        }
+    }
+
+    // Claims seats first..first+n-1 all or nothing, one CAS per word spanned
+    public boolean tryClaimRange(int first, int n) {
+        int last = first + n - 1;
+        for (int seat = first; seat <= last; ) {
+            int index = (seat - 1) >>> 6;
+            int wordLast = Math.min(last, (index + 1) << 6);
+            long mask = rangeMask(seat, wordLast);
+            if (!casSet(index, mask)) {
+                if (seat > first) releaseRange(first, seat - first);
+                return false;
+            }
+            seat = wordLast + 1;
+        }
+        return true;
+    }
+
+    public void releaseRange(int first, int n) {
+        int last = first + n - 1;
+        for (int seat = first; seat <= last; ) {
+            int index = (seat - 1) >>> 6;
+            int wordLast = Math.min(last, (index + 1) << 6);
+            long mask = rangeMask(seat, wordLast);
+            while (true) {
+                long word = words.get(index);
+                if (words.compareAndSet(index, word, word & ~mask)) break;
+                casRetries.increment();
+            }
+            seat = wordLast + 1;
+        }
+    }
+
+    // Bits for seats from..to, both within the same word
+    private static long rangeMask(int from, int to) {
+        int lo = (from - 1) & 63;
+        int hi = (to - 1) & 63;
+        return (hi == 63 ? -1L : (1L << (hi + 1)) - 1) & (-1L << lo);
+    }
+
+    private boolean casSet(int index, long mask) {
+        while (true) {
+            long word = words.get(index);
+            if ((word & mask) != 0) {
+                return false;
+            }
+            if (words.compareAndSet(index, word, word | mask)) {
+                return true;
+            }
+            casRetries.increment();
+        }
+    }
+
+    public boolean isTaken(int seat) {
+        return (words.get((seat - 1) >>> 6) & (1L << (seat - 1))) != 0;
+    }
+
+    public int countTaken() {
+        int taken = 0;
+        for (int i = 0; i < words.length(); i++) {
+            taken += Long.bitCount(words.get(i));
+        }
+        return taken;
+    }
+
+    public int countFree() {
+        return totalSeats - countTaken();
+    }
+
+    // Free bits of word i, with bits past the last seat treated as taken
+    private long freeBits(int i) {
+        long free = ~words.get(i);
+        int tail = totalSeats - (i << 6);
+        return tail >= 64 ? free : free & ((1L << tail) - 1);
+    }
+
+    // Receives free runs in seat order; return false to stop the walk
+    interface RunVisitor {
+        boolean visit(int firstSeat, int lastSeat);
+    }
+
+    // First seat of the first run of n free seats at or after fromSeat, or -1
+    public int findFreeRun(int n, int fromSeat) {
+        if (n <= 0 || fromSeat < 1 || fromSeat > totalSeats) return -1;
+        int[] found = { -1 };
+        walkFreeRanges(fromSeat, (first, last) -> {
+            if (last - first + 1 < n) return true;
+            found[0] = first;
+            return false;
+        });
+        return found[0];
+    }
+
+    // Visits each maximal run of free seats as (firstSeat, lastSeat) until
+    // the visitor returns false
+    public void forEachFreeRange(RunVisitor visitor) {
+        walkFreeRanges(1, visitor);
+    }
+
+    // Runs are clipped to start at fromSeat. Full and empty words cost one
+    // step; a mixed word costs one numberOfTrailingZeros per run boundary.
+    public void walkFreeRanges(int fromSeat, RunVisitor visitor) {
+        int runStart = -1; // 0-based index of the open run's first seat
+        int firstWord = (fromSeat - 1) >>> 6;
+        for (int i = firstWord; i < words.length(); i++) {
+            long free = freeBits(i);
+            if (i == firstWord) {
+                free &= -1L << (fromSeat - 1); // ignore seats before fromSeat
+            }
+            int base = i << 6;
+            int pos = 0;
+            while (pos < 64) {
+                if (runStart < 0) {
+                    long ahead = free & (-1L << pos);
+                    if (ahead == 0) break;
+                    pos = Long.numberOfTrailingZeros(ahead);
+                    runStart = base + pos;
+                } else {
+                    long taken = ~free & (-1L << pos);
+                    if (taken == 0) break; // run continues into the next word
+                    pos = Long.numberOfTrailingZeros(taken);
+                    if (!visitor.visit(runStart + 1, base + pos)) return;
+                    runStart = -1;
+                }
+            }
+        }
+        if (runStart >= 0) {
+            visitor.visit(runStart + 1, totalSeats);
+        }
+    }
+
+    // Same walk downwards: runs in descending seat order, clipped to end at
+    // toSeat, using numberOfLeadingZeros per run boundary
+    public void forEachFreeRangeDown(int toSeat, RunVisitor visitor) {
+        if (toSeat < 1) return;
+        toSeat = Math.min(toSeat, totalSeats);
+        int runEnd = -1; // 0-based index of the open run's last seat
+        int lastWord = (toSeat - 1) >>> 6;
+        for (int i = lastWord; i >= 0; i--) {
+            long free = freeBits(i);
+            if (i == lastWord) {
+                free &= -1L >>> (63 - ((toSeat - 1) & 63)); // ignore seats after toSeat
+            }
+            int base = i << 6;
+            int pos = 63;
+            while (pos >= 0) {
+                long below = -1L >>> (63 - pos); // bits 0..pos
+                if (runEnd < 0) {
+                    long ahead = free & below;
+                    if (ahead == 0) break;
+                    pos = 63 - Long.numberOfLeadingZeros(ahead);
+                    runEnd = base + pos;
+                } else {
+                    long taken = ~free & below;
+                    if (taken == 0) break; // run continues into the previous word
+                    pos = 63 - Long.numberOfLeadingZeros(taken);
+                    if (!visitor.visit(base + pos + 2, runEnd + 1)) return;
+                    runEnd = -1;
+                }
+            }
+        }
+        if (runEnd >= 0) {
+            visitor.visit(1, runEnd + 1);
+        }
+    }
+
+    // e.g. "1-120, 130-500"
+    public String describeFreeRanges() {
+        StringBuilder sb = new StringBuilder();
+        forEachFreeRange((first, last) -> {
+            if (sb.length() > 0) sb.append(", ");
+            sb.append(first);
+            if (first != last) sb.append('-').append(last);
+            return true;
+        });
+        return sb.length() == 0 ? "none" : sb.toString();
+    }
+
+    // Next taken seat at or after fromSeat, or -1
+    public int nextTaken(int fromSeat) {
+        if (fromSeat > totalSeats) return -1;
+        int i = (fromSeat - 1) >>> 6;
+        long word = words.get(i) & (-1L << (fromSeat - 1));
+        while (true) {
+            if (word != 0) {
+                int seat = (i << 6) + Long.numberOfTrailingZeros(word) + 1;
+                return seat <= totalSeats ? seat : -1;
+            }
+            if (++i >= words.length()) return -1;
+            word = words.get(i);
+        }
+    }
+}
+
+// ================= HASHED TIMER WHEEL =================
+// Timeouts hash into one of a fixed ring of buckets by deadline; a single
+// worker advances one bucket per tick and only touches the timeouts in
+// that bucket. Scheduling is O(1) and needs no task per timeout.
+class HashedTimerWheel {
+
+    private static final class Timeout {
+        final long deadline;
+        final Runnable task;
+        long remainingRounds;
+
+        Timeout(long deadline, Runnable task) {
+            this.deadline = deadline;
+            this.task = task;
+        }
+    }
+
+    private final long tickNanos;
+    private final ArrayDeque<Timeout>[] wheel;
+    private final int mask;
+    private final ConcurrentLinkedQueue<Timeout> pending = new ConcurrentLinkedQueue<>();
+    private final long startTime = System.nanoTime();
+    private long tick; // only touched by the worker
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public HashedTimerWheel(long tickDuration, TimeUnit unit, int buckets) {
+        int size = Integer.highestOneBit(Math.max(2, buckets - 1)) << 1;
+        this.tickNanos = unit.toNanos(tickDuration);
+        this.wheel = new ArrayDeque[size];
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new ArrayDeque<>();
+        }
+
+        Thread worker = new Thread(this::run, "timer-wheel");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    // Safe to call from any thread; the worker files it into its bucket
+    public void schedule(Runnable task, long delay, TimeUnit unit) {
+        pending.add(new Timeout(System.nanoTime() + unit.toNanos(delay), task));
+    }
+
+    private void run() {
+        while (true) {
+            long wakeAt = startTime + (tick + 1) * tickNanos;
+            long sleepNanos = wakeAt - System.nanoTime();
+            if (sleepNanos > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleepNanos);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+            transferPending();
+            expire(wheel[(int) (tick & mask)]);
+            tick++;
+        }
+    }
+
+    private void transferPending() {
+        Timeout timeout;
+        while ((timeout = pending.poll()) != null) {
+            long ticks = Math.max(0, (timeout.deadline - startTime) / tickNanos);
+            timeout.remainingRounds = Math.max(0, ticks - tick) / wheel.length;
+            wheel[(int) (Math.max(ticks, tick) & mask)].add(timeout);
+        }
+    }
+
+    private void expire(ArrayDeque<Timeout> bucket) {
+        for (Iterator<Timeout> it = bucket.iterator(); it.hasNext(); ) {
+            Timeout timeout = it.next();
+            if (timeout.remainingRounds > 0) {
+                timeout.remainingRounds--;
+                continue;
+            }
+            it.remove();
+            try {
+                timeout.task.run();
+            } catch (RuntimeException e) {
+                System.out.println("Timer task failed: " + e.getMessage());
+            }
+        }
+    }
+}
+
+// ================= BOOKING JOURNAL =================
+// Write-ahead log of one event's bookings. Callers enqueue a record and
+// wait on its future; a single writer drains everything queued, writes it
+// with one write and one force (group commit), then completes the batch.
+// The writer keeps its own image of the durable seat map, from which it
+// writes a snapshot every SNAPSHOT_EVERY records and resets the log.
+class BookingJournal implements Closeable {
+
+    static final byte BOOK = 1;
+    static final byte CANCEL = 2;
+    private static final byte STOP = 0;
+
+    private static final int MAGIC = 0x544B4A31;          // "TKJ1"
+    private static final int SNAPSHOT_MAGIC = 0x544B5331; // "TKS1"
+    private static final int HEADER = Integer.BYTES;
+    private static final int FIXED_BODY = Byte.BYTES + Integer.BYTES + Integer.BYTES + Short.BYTES;
+    private static final int MAX_BATCH = 4096;
+    static final int SNAPSHOT_EVERY = 50_000;
+
+    record Header(String name, int totalSeats) {}
+
+    // Seats first..first+count-1; user is null for cancels
+    private record Entry(byte type, int first, int count, String user, CompletableFuture<Void> saved) {}
+
+    private final Path journalFile;
+    private final Path snapshotFile;
+    private final String name;
+    private final FileChannel channel;
+    private final String[] durableOwners; // writer's image of what is on disk
+    private final ArrayBlockingQueue<Entry> queue = new ArrayBlockingQueue<>(1 << 16);
+    private final Thread writer;
+    private final long dataStart;
+    private long end;
+    private int sinceSnapshot;
+    // Appenders hold the read lock across their closed check and enqueue;
+    // close takes the write lock, so nothing can be queued after STOP
+    private final ReentrantReadWriteLock closing = new ReentrantReadWriteLock();
+    private boolean closed;
+
+    private final AtomicLong records = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong snapshots = new AtomicLong();
+
+    public BookingJournal(Path dir, String eventId, String name, int totalSeats) throws IOException {
+        this.journalFile = dir.resolve(eventId + ".journal");
+        this.snapshotFile = dir.resolve(eventId + ".snapshot");
+        this.name = name;
+        this.durableOwners = new String[totalSeats + 1];
+
+        if (Files.exists(snapshotFile)) {
+            loadSnapshot(totalSeats);
+        }
+
+        channel = FileChannel.open(journalFile, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (channel.size() == 0) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            writeHeader(new DataOutputStream(bytes), MAGIC, name, totalSeats);
+            channel.write(ByteBuffer.wrap(bytes.toByteArray()), 0);
+            channel.force(true);
+            dataStart = bytes.size();
+            end = dataStart;
+        } else {
+            dataStart = replay(totalSeats);
+        }
+
+        writer = new Thread(this::writeLoop, "journal-" + eventId);
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    // Name and seat count of an existing journal, so its event can be recreated
+    static Header readHeader(Path journalFile) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(journalFile)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a booking journal: " + journalFile);
+            }
+            return new Header(in.readUTF(), in.readInt());
+        }
+    }
+
+    private static void writeHeader(DataOutputStream out, int magic, String name, int totalSeats) throws IOException {
+        out.writeInt(magic);
+        out.writeUTF(name);
+        out.writeInt(totalSeats);
+        out.flush();
+    }
+
+    private void loadSnapshot(int totalSeats) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotFile)))) {
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                throw new IOException("Not a booking snapshot: " + snapshotFile);
+            }
+            in.readUTF();
+            if (in.readInt() != totalSeats) {
+                throw new IOException("Snapshot seat count does not match: " + snapshotFile);
+            }
+            for (int booked = in.readInt(); booked > 0; booked--) {
+                int seat = in.readInt();
+                durableOwners[seat] = in.readUTF();
+            }
+        }
+    }
+
+    // Applies every whole record on top of the snapshot; a torn record at
+    // the tail (crash mid-write) is truncated. Records only set or clear
+    // seats, so replaying ones the snapshot already covers is harmless.
+    private long replay(int totalSeats) throws IOException {
+        long size = channel.size();
+        // Not closed: closing the stream would close the channel
+        DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Channels.newInputStream(channel.position(0)), 1 << 16));
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a booking journal: " + journalFile);
+        }
+        // The name was written with writeUTF: a byte count, then modified
+        // UTF-8, so skip by that count rather than re-encoding the name
+        int nameBytes = in.readUnsignedShort();
+        in.skipNBytes(nameBytes);
+        if (in.readInt() != totalSeats) {
+            throw new IOException("Journal seat count does not match: " + journalFile);
+        }
+        long start = Integer.BYTES + Short.BYTES + nameBytes + Integer.BYTES;
+
+        long pos = start;
+        while (pos + HEADER <= size) {
+            int length = in.readInt();
+            if (length < FIXED_BODY || pos + HEADER + length > size) {
+                break;
+            }
+            byte type = in.readByte();
+            int first = in.readInt();
+            int count = in.readInt();
+            byte[] user = new byte[in.readShort()];
+            in.readFully(user);
+
+            String owner = type == BOOK ? new String(user, StandardCharsets.UTF_8) : null;
+            for (int seat = first; seat < first + count; seat++) {
+                durableOwners[seat] = owner;
+            }
+            pos += HEADER + length;
+        }
+        end = pos;
+        if (end < size) {
+            channel.truncate(end);
+        }
+        return start;
+    }
+
+    // Seats booked as of the last durable record
+    public void forEachBooked(BiConsumer<Integer, String> action) {
+        for (int seat = 1; seat < durableOwners.length; seat++) {
+            if (durableOwners[seat] != null) {
+                action.accept(seat, durableOwners[seat]);
+            }
+        }
+    }
+
+    // Completes once the record is forced to disk; blocks while the queue is full
+    public CompletableFuture<Void> append(byte type, int first, int count, String user) {
+        CompletableFuture<Void> saved = new CompletableFuture<>();
+        closing.readLock().lock();
+        try {
+            if (closed) {
+                saved.completeExceptionally(new IOException("Journal closed"));
+                return saved;
+            }
+            queue.put(new Entry(type, first, count, user, saved));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            saved.completeExceptionally(e);
+        } finally {
+            closing.readLock().unlock();
+        }
+        return saved;
+    }
+
+    // The batch is whatever queued up while the previous force was running
+    private void writeLoop() {
+        List<Entry> batch = new ArrayList<>(MAX_BATCH);
+        while (true) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(batch, MAX_BATCH - 1);
+
+            boolean stop = batch.removeIf(entry -> entry.type() == STOP);
+
+            try {
+                writeBatch(batch);
+                for (Entry entry : batch) entry.saved().complete(null);
+            } catch (IOException e) {
+                for (Entry entry : batch) entry.saved().completeExceptionally(e);
+            }
+            batch.clear();
+
+            if (stop) return;
+            if (sinceSnapshot >= SNAPSHOT_EVERY) {
+                try {
+                    snapshot();
+                } catch (IOException e) {
+                    System.out.println("Snapshot failed: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void writeBatch(List<Entry> batch) throws IOException {
+        if (batch.isEmpty()) return;
+
+        List<byte[]> users = new ArrayList<>(batch.size());
+        int bytes = 0;
+        for (Entry entry : batch) {
+            byte[] user = entry.user() == null ? new byte[0] : entry.user().getBytes(StandardCharsets.UTF_8);
+            users.add(user);
+            bytes += HEADER + FIXED_BODY + user.length;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(bytes);
+        for (int i = 0; i < batch.size(); i++) {
+            Entry entry = batch.get(i);
+            byte[] user = users.get(i);
+            buffer.putInt(FIXED_BODY + user.length)
+                  .put(entry.type())
+                  .putInt(entry.first())
+                  .putInt(entry.count())
+                  .putShort((short) user.length)
+                  .put(user);
+        }
+        buffer.flip();
+
+        long pos = end;
+        while (buffer.hasRemaining()) {
+            pos += channel.write(buffer, pos);
+        }
+        channel.force(false);
+        end = pos;
+
+        for (Entry entry : batch) {
+            String owner = entry.type() == BOOK ? entry.user() : null;
+            for (int seat = entry.first(); seat < entry.first() + entry.count(); seat++) {
+                durableOwners[seat] = owner;
+            }
+        }
+        records.addAndGet(batch.size());
+        batches.incrementAndGet();
+        sinceSnapshot += batch.size();
+    }
+
+    // Writer thread only. The snapshot replaces the old one atomically and
+    // the log is reset after it; a crash in between just replays records
+    // the snapshot already contains.
+    private void snapshot() throws IOException {
+        Path tmp = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+        try (FileOutputStream file = new FileOutputStream(tmp.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16))) {
+
+            int booked = 0;
+            for (int seat = 1; seat < durableOwners.length; seat++) {
+                if (durableOwners[seat] != null) booked++;
+            }
+            writeHeader(out, SNAPSHOT_MAGIC, name, durableOwners.length - 1);
+            out.writeInt(booked);
+            for (int seat = 1; seat < durableOwners.length; seat++) {
+                if (durableOwners[seat] != null) {
+                    out.writeInt(seat);
+                    out.writeUTF(durableOwners[seat]);
+                }
+            }
+            out.flush();
+            file.getFD().sync();
+        }
+        Files.move(tmp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        channel.truncate(dataStart);
+        channel.force(true);
+        end = dataStart;
+        sinceSnapshot = 0;
+        snapshots.incrementAndGet();
+    }
+
+    public String stats() {
+        long b = Math.max(1, batches.get());
+        return String.format("%,d records in %,d forces (avg batch %.1f) | %d snapshots",
+                records.get(), batches.get(), (double) records.get() / b, snapshots.get());
+    }
+
+    // Flushes everything queued, snapshots and closes
+    @Override
+    public void close() throws IOException {
+        closing.writeLock().lock();
+        try {
+            if (closed) return;
+            closed = true;
+            queue.put(new Entry(STOP, 0, 0, null, new CompletableFuture<>()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            closing.writeLock().unlock();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Only reachable if the writer died early; never leave a caller waiting
+        for (Entry entry; (entry = queue.poll()) != null; ) {
+            entry.saved().completeExceptionally(new IOException("Journal closed"));
+        }
+        if (sinceSnapshot > 0) {
+            snapshot();
+        }
+        channel.close();
+    }
+}
+
 // ================= TICKET BOOKING SERVICE =================
 class TicketBookingService {
 
-    private ConcurrentHashMap<Integer, Ticket> bookedSeats = new ConcurrentHashMap<>();
+    // Seat states: FREE (bit clear), HELD (bit set, hold id set),
+    // BOOKED (bit set, no hold id). Owners and hold ids are side tables.
+    private SeatBitmap seats;
+    private AtomicReferenceArray<String> owners;
+    private AtomicLongArray holdIds;
     private int totalSeats;
+    private long processingDelayMillis;
+    private volatile BookingJournal journal; // null = in memory only
+
+    static final long HOLD_MILLIS = TimeUnit.MINUTES.toMillis(2);
+    private static final long CONFIRMING = -1; // hold id while a confirm is being saved
+    private static final long RELEASING = -2;  // hold id while a release is clearing the seat
+    static final int MAX_PENDING = 10_000;
+    private final Semaphore pending = new Semaphore(MAX_PENDING);
+    private static final AtomicLong NEXT_HOLD_ID = new AtomicLong();
+    private static final HashedTimerWheel HOLD_TIMER = new HashedTimerWheel(100, TimeUnit.MILLISECONDS, 512);
 
     public TicketBookingService(int totalSeats) {
+        this(totalSeats, 100);
+    }
+
+    public TicketBookingService(int totalSeats, long processingDelayMillis) {
         this.totalSeats = totalSeats;
+        this.processingDelayMillis = processingDelayMillis;
+        this.seats = new SeatBitmap(totalSeats);
+        this.owners = new AtomicReferenceArray<>(totalSeats + 1);
+        this.holdIds = new AtomicLongArray(totalSeats + 1);
+    }
+
+    public int getTotalSeats() { return totalSeats; }
+
+    public long getCasRetries() { return seats.getCasRetries(); }
+
+    // DURABILITY
+    // Restores the journal's seats, then logs every later book and cancel.
+    // Records are queued before the change becomes visible, so a cancel or
+    // rebooking of a seat is always logged after the booking it follows.
+    void attachJournal(BookingJournal journal) {
+        journal.forEachBooked((seat, owner) -> {
+            seats.tryClaim(seat);
+            owners.set(seat, owner);
+        });
+        this.journal = journal;
+    }
+
+    void closeJournal() throws IOException {
+        BookingJournal j = journal;
+        if (j != null) {
+            journal = null;
+            j.close();
+        }
+    }
+
+    BookingJournal getJournal() { return journal; }
+
+    private CompletableFuture<Void> log(byte type, int first, int count, String user) {
+        BookingJournal j = journal;
+        return j == null ? null : j.append(type, first, count, user);
     }
 
-    // THREAD SAFE BOOKING
-    public synchronized void bookSeat(int seatNumber, String user)
+    // Waits for the record to be forced; on failure undoes the claim
+    private void awaitSaved(CompletableFuture<Void> saved, int first, int count, String user)
+            throws SeatNotAvailableException {
+        if (saved == null) return;
+        try {
+            saved.join();
+        } catch (CompletionException e) {
+            rollback(first, count, user);
+            throw notSaved(e);
+        }
+    }
+
+    // Frees seats first..first+count-1 unless they were cancelled meanwhile
+    private void rollback(int first, int count, String user) {
+        for (int seat = first; seat < first + count; seat++) {
+            if (owners.compareAndSet(seat, user, null)) {
+                seats.release(seat);
+            }
+        }
+    }
+
+    private static SeatNotAvailableException notSaved(Throwable failure) {
+        Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+                ? failure.getCause() : failure;
+        return new SeatNotAvailableException("Booking could not be saved: " + cause.getMessage());
+    }
+
+    // THREAD SAFE BOOKING (per seat, no global lock)
+    // A CAS on the seat's bitmap word claims it, so exactly one caller wins
+    // and bookings for different seats never wait on each other.
+    public Ticket bookSeat(int seatNumber, String user)
             throws SeatNotAvailableException {
 
         if (seatNumber > totalSeats || seatNumber <= 0) {
             throw new SeatNotAvailableException("Invalid seat number!");
         }
 
-        if (bookedSeats.containsKey(seatNumber)) {
+        if (!seats.tryClaim(seatNumber)) {
             throw new SeatNotAvailableException("Seat already booked!");
         }
+        CompletableFuture<Void> saved = log(BookingJournal.BOOK, seatNumber, 1, user);
+        owners.set(seatNumber, user);
 
-        // Simulate processing delay (race condition simulation)
-        try { Thread.sleep(100); } catch (InterruptedException e) {}
+        // Simulate processing delay (done after the claim, holding no lock)
+        if (processingDelayMillis > 0) {
+            try { Thread.sleep(processingDelayMillis); } catch (InterruptedException e) {}
+        }
 
-        bookedSeats.put(seatNumber, new Ticket(seatNumber, user));
-        System.out.println("SUCCESS: " + user + " booked seat " + seatNumber);
+        awaitSaved(saved, seatNumber, 1, user);
+        return new Ticket(seatNumber, user);
     }
 
     // THREAD SAFE CANCEL
-    public synchronized void cancelSeat(int seatNumber, String user) {
+    public void cancelSeat(int seatNumber, String user) {
+        try {
+            startCancel(seatNumber, user).join();
+            System.out.println("CANCELLED: Seat " + seatNumber + " by " + user);
+        } catch (InvalidCancellationException e) {
+            System.out.println(e.getMessage());
+        } catch (CompletionException e) {
+            System.out.println("WARNING: cancellation not saved: " + e.getCause().getMessage());
+            System.out.println("CANCELLED: Seat " + seatNumber + " by " + user);
+        }
+    }
+
+    // Frees the seat at once; the future completes when the cancel is saved
+    private CompletableFuture<Ticket> startCancel(int seatNumber, String user)
+            throws InvalidCancellationException {
+
+        String owner = (seatNumber > totalSeats || seatNumber <= 0) ? null : owners.get(seatNumber);
+
+        if (owner == null) {
+            throw new InvalidCancellationException("Seat not booked.");
+        }
+
+        if (holdIds.get(seatNumber) != 0) {
+            throw new InvalidCancellationException("Seat is on hold, not booked.");
+        }
+
+        if (!owner.equals(user)) {
+            throw new InvalidCancellationException("You cannot cancel another user's booking.");
+        }
+
+        // Only clears the exact owner checked above; the bit is freed last
+        if (!owners.compareAndSet(seatNumber, owner, null)) {
+            throw new InvalidCancellationException("Seat not booked.");
+        }
+        CompletableFuture<Void> saved = log(BookingJournal.CANCEL, seatNumber, 1, null);
+        seats.release(seatNumber);
+
+        Ticket ticket = new Ticket(seatNumber, user);
+        return saved == null ? CompletableFuture.completedFuture(ticket) : saved.thenApply(v -> ticket);
+    }
+
+    // ASYNC API
+    // Results come back as futures instead of being printed, so callers
+    // (e.g. a payment step) can chain onto them. No thread waits on the
+    // processing delay or the journal: both are chained, not slept/joined.
+    // Failures complete the future with SeatNotAvailableException,
+    // InvalidCancellationException or, once MAX_PENDING requests are in
+    // flight, BookingRejectedException.
+    public CompletableFuture<Ticket> bookAsync(int seatNumber, String user, Executor executor) {
+        return submit(() -> startBooking(seatNumber, user), executor);
+    }
+
+    public CompletableFuture<Ticket> cancelAsync(int seatNumber, String user, Executor executor) {
+        return submit(() -> startCancel(seatNumber, user), executor);
+    }
+
+    private interface AsyncStep {
+        CompletableFuture<Ticket> start() throws Exception;
+    }
+
+    private CompletableFuture<Ticket> submit(AsyncStep step, Executor executor) {
+        if (!pending.tryAcquire()) {
+            return CompletableFuture.failedFuture(
+                    new BookingRejectedException("Too many pending requests, please retry."));
+        }
+
+        CompletableFuture<Ticket> result;
+        try {
+            result = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return step.start();
+                } catch (Exception e) {
+                    return CompletableFuture.<Ticket>failedFuture(e);
+                }
+            }, executor).thenCompose(f -> f);
+        } catch (RejectedExecutionException e) {
+            pending.release();
+            return CompletableFuture.failedFuture(new BookingRejectedException("Booking service is shutting down."));
+        }
+        return result.whenComplete((ticket, failure) -> pending.release());
+    }
+
+    // Claims now; the ticket is issued once the record is saved and the
+    // processing delay has passed
+    private CompletableFuture<Ticket> startBooking(int seatNumber, String user)
+            throws SeatNotAvailableException {
+
+        if (seatNumber > totalSeats || seatNumber <= 0) {
+            throw new SeatNotAvailableException("Invalid seat number!");
+        }
+
+        if (!seats.tryClaim(seatNumber)) {
+            throw new SeatNotAvailableException("Seat already booked!");
+        }
+        CompletableFuture<Void> saved = log(BookingJournal.BOOK, seatNumber, 1, user);
+        owners.set(seatNumber, user);
+
+        CompletableFuture<Void> done = saved == null ? CompletableFuture.completedFuture(null) : saved;
+        if (processingDelayMillis > 0) {
+            Executor later = CompletableFuture.delayedExecutor(processingDelayMillis, TimeUnit.MILLISECONDS);
+            done = done.thenCombine(CompletableFuture.runAsync(() -> {}, later), (a, b) -> null);
+        }
+
+        return done.handle((v, failure) -> {
+            if (failure != null) {
+                rollback(seatNumber, 1, user);
+                throw new CompletionException(notSaved(failure));
+            }
+            return new Ticket(seatNumber, user);
+        });
+    }
+
+    // SEAT HOLDS
+    // A hold claims the seat like a booking but expires unless confirmed.
+    // Confirm, release and expiry race on one CAS of the hold id, so
+    // exactly one of them takes effect.
+    public long holdSeat(int seatNumber, String user, long ttlMillis)
+            throws SeatNotAvailableException {
+
+        if (seatNumber > totalSeats || seatNumber <= 0) {
+            throw new SeatNotAvailableException("Invalid seat number!");
+        }
+
+        if (!seats.tryClaim(seatNumber)) {
+            throw new SeatNotAvailableException("Seat already booked!");
+        }
+
+        long holdId = NEXT_HOLD_ID.incrementAndGet();
+        holdIds.set(seatNumber, holdId);
+        owners.set(seatNumber, user);
+        HOLD_TIMER.schedule(() -> releaseHold(seatNumber, holdId), ttlMillis, TimeUnit.MILLISECONDS);
+        return holdId;
+    }
+
+    public Ticket confirmHold(int seatNumber, long holdId) throws SeatNotAvailableException {
+
+        if (seatNumber > totalSeats || seatNumber <= 0
+                || !holdIds.compareAndSet(seatNumber, holdId, CONFIRMING)) {
+            throw new SeatNotAvailableException("Hold expired or not found!");
+        }
+        String user = owners.get(seatNumber);
+        CompletableFuture<Void> saved = log(BookingJournal.BOOK, seatNumber, 1, user);
+        holdIds.set(seatNumber, 0);
+
+        awaitSaved(saved, seatNumber, 1, user);
+        return new Ticket(seatNumber, user);
+    }
+
+    // Also used by the timer wheel on expiry; false if already settled
+    public boolean releaseHold(int seatNumber, long holdId) {
+
+        if (seatNumber > totalSeats || seatNumber <= 0
+                || !holdIds.compareAndSet(seatNumber, holdId, RELEASING)) {
+            return false;
+        }
+        // The seat still reads as held (cancel refuses it) until the owner is
+        // gone; the bit is freed last, so no new claim can see our cleanup
+        owners.set(seatNumber, null);
+        holdIds.set(seatNumber, 0);
+        seats.release(seatNumber);
+        return true;
+    }
+
+    // GROUP BOOKING (all or nothing)
+    // Picks the free run whose best-placed block sits nearest the preferred
+    // seat, then claims the whole block at once; if another booking grabbed
+    // part of it meanwhile, nothing is kept and the search is repeated.
+    public List<Ticket> bookBlock(int n, String user, SeatPreference preference)
+            throws SeatNotAvailableException {
+
+        if (n <= 0 || n > totalSeats) {
+            throw new SeatNotAvailableException("Invalid group size!");
+        }
+
+        int target = preference.targetSeat(totalSeats);
+
+        for (int attempt = 0; attempt < 8; attempt++) {
+            int first = bestBlockStart(n, target);
+            if (first < 0) {
+                throw new SeatNotAvailableException("No " + n + " contiguous seats available!");
+            }
+            if (seats.tryClaimRange(first, n)) {
+                CompletableFuture<Void> saved = log(BookingJournal.BOOK, first, n, user);
+                List<Ticket> tickets = new ArrayList<>(n);
+                for (int seat = first; seat < first + n; seat++) {
+                    owners.set(seat, user);
+                    tickets.add(new Ticket(seat, user));
+                }
+
+                if (processingDelayMillis > 0) {
+                    try { Thread.sleep(processingDelayMillis); } catch (InterruptedException e) {}
+                }
+
+                awaitSaved(saved, first, n, user);
+                return tickets;
+            }
+        }
+        throw new SeatNotAvailableException("Seats are selling fast, please try again!");
+    }
+
+    // The best block starts as close as possible to the seat that centres
+    // it on the target. Walks free runs outwards from there: upwards to the
+    // first run that fits, then downwards until a fit could no longer be as
+    // close, so the cost depends on how far the nearest fit is, not on the
+    // size of the venue. Ties go to the lower seat.
+    private int bestBlockStart(int n, int target) {
+        int ideal = target - (n - 1) / 2;
+        int[] best = { -1, Integer.MAX_VALUE };
 
-        Ticket ticket = bookedSeats.get(seatNumber);
+        seats.walkFreeRanges(Math.max(1, ideal), (runFirst, runLast) -> {
+            if (runLast - runFirst + 1 < n) return true;
+            best[0] = runFirst;
+            best[1] = runFirst - ideal;
+            return false;
+        });
 
-        if (ticket == null) {
-            System.out.println("Seat not booked.");
-            return;
-        }
+        seats.forEachFreeRangeDown(ideal + n - 1, (runFirst, runLast) -> {
+            int start = runLast - n + 1;
+            if (ideal - start > best[1]) return false;
+            if (start < runFirst) return true;
+            best[0] = start;
+            best[1] = ideal - start;
+            return false;
+        });
+        return best[0];
+    }
 
-        if (!ticket.getUser().equals(user)) {
-            System.out.println("You cannot cancel another user's booking.");
-            return;
-        }
+    public int countAvailableSeats() {
+        return seats.countFree();
+    }
 
-        bookedSeats.remove(seatNumber);
-        System.out.println("CANCELLED: Seat " + seatNumber + " by " + user);
+    // First seat of the first n contiguous free seats, or -1
+    public int findContiguousSeats(int n) {
+        return seats.findFreeRun(n, 1);
     }
 
     public void showAvailableSeats() {
-        System.out.println("\nAvailable Seats:");
-        for (int i = 1; i <= totalSeats; i++) {
-            if (!bookedSeats.containsKey(i)) {
-                System.out.print(i + " ");
-            }
-        }
-        System.out.println();
+        System.out.println("\nAvailable Seats (" + seats.countFree() + "/" + totalSeats + "):");
+        System.out.println(seats.describeFreeRanges());
     }
 
     public void showAllBookings() {
-        if (bookedSeats.isEmpty()) {
+        int seat = seats.nextTaken(1);
+
+        if (seat < 0) {
             System.out.println("No bookings yet.");
             return;
         }
 
-        bookedSeats.values().forEach(System.out::println);
+        for (; seat > 0; seat = seats.nextTaken(seat + 1)) {
+            String owner = owners.get(seat);
+            if (owner != null) {
+                System.out.println(new Ticket(seat, owner)
+                        + (holdIds.get(seat) != 0 ? " (on hold)" : ""));
+            }
+        }
     }
 }
 
@@ -113,7 +1119,7 @@ class DeadlockSimulation {
                     System.out.println("Thread 1 acquired Lock 2");
                 }
             }
-        });
+        }, "deadlock-1");
 
         Thread t2 = new Thread(() -> {
             synchronized (lock2) {
@@ -123,32 +1129,570 @@ class DeadlockSimulation {
                     System.out.println("Thread 2 acquired Lock 1");
                 }
             }
-        });
+        }, "deadlock-2");
 
         t1.start();
         t2.start();
     }
 }
 
+// ================= DEADLOCK WATCHDOG =================
+// Samples the JVM's thread state on a fixed period. Deadlocks come from
+// findDeadlockedThreads; long-blocked threads are ones that stayed BLOCKED
+// on the same monitor acquisition across samples. Each episode is reported
+// once, with the lock graph of the threads involved.
+class DeadlockWatchdog {
+
+    private final ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+    private final long periodMillis;
+    private final long blockedThresholdNanos;
+    private final ScheduledExecutorService timer;
+
+    // Only touched by the watchdog thread
+    private final Set<Long> reportedDeadlocked = new HashSet<>();
+    private final Map<Long, long[]> blockedSince = new HashMap<>(); // id -> {blockedCount, since}
+    private final Set<Long> reportedBlocked = new HashSet<>();
+
+    private final AtomicLong checks = new AtomicLong();
+    private final AtomicLong checkNanos = new AtomicLong();
+    private final AtomicLong deadlocksFound = new AtomicLong();
+    private final AtomicLong longBlockedFound = new AtomicLong();
+    private volatile long startedAt;
+
+    public DeadlockWatchdog(long periodMillis, long blockedThresholdMillis) {
+        this.periodMillis = periodMillis;
+        this.blockedThresholdNanos = TimeUnit.MILLISECONDS.toNanos(blockedThresholdMillis);
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "deadlock-watchdog");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public void start() {
+        startedAt = System.nanoTime();
+        timer.scheduleWithFixedDelay(this::check, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void shutdown() {
+        timer.shutdownNow();
+    }
+
+    void check() {
+        long t = System.nanoTime();
+        try {
+            checkDeadlocks();
+            checkLongBlocked(t);
+        } catch (RuntimeException e) {
+            System.out.println("Watchdog check failed: " + e.getMessage());
+        }
+        checks.incrementAndGet();
+        checkNanos.addAndGet(System.nanoTime() - t);
+    }
+
+    private void checkDeadlocks() {
+        long[] ids = mx.findDeadlockedThreads();
+        if (ids == null) {
+            reportedDeadlocked.clear();
+            return;
+        }
+
+        boolean fresh = false;
+        for (long id : ids) {
+            fresh |= reportedDeadlocked.add(id);
+        }
+        if (!fresh) return;
+
+        deadlocksFound.incrementAndGet();
+        System.out.println("\n[WATCHDOG] DEADLOCK detected between " + ids.length + " threads:");
+        dumpLockGraph(mx.getThreadInfo(ids, true, true));
+    }
+
+    // BLOCKED with an unchanged blocked count means the same acquisition
+    // has been waiting since we first saw it
+    private void checkLongBlocked(long now) {
+        Set<Long> stillBlocked = new HashSet<>();
+        List<Long> overdue = new ArrayList<>();
+
+        for (ThreadInfo info : mx.getThreadInfo(mx.getAllThreadIds())) {
+            if (info == null || info.getThreadState() != Thread.State.BLOCKED) continue;
+
+            long id = info.getThreadId();
+            stillBlocked.add(id);
+            long[] seen = blockedSince.get(id);
+            if (seen == null || seen[0] != info.getBlockedCount()) {
+                blockedSince.put(id, new long[]{info.getBlockedCount(), now});
+                reportedBlocked.remove(id);
+            } else if (now - seen[1] >= blockedThresholdNanos
+                    && !reportedDeadlocked.contains(id) && reportedBlocked.add(id)) {
+                overdue.add(id);
+            }
+        }
+
+        blockedSince.keySet().retainAll(stillBlocked);
+        reportedBlocked.retainAll(stillBlocked);
+
+        if (!overdue.isEmpty()) {
+            longBlockedFound.addAndGet(overdue.size());
+            System.out.println("\n[WATCHDOG] " + overdue.size() + " thread(s) blocked over "
+                    + TimeUnit.NANOSECONDS.toMillis(blockedThresholdNanos) + " ms:");
+            long[] ids = overdue.stream().mapToLong(Long::longValue).toArray();
+            dumpLockGraph(mx.getThreadInfo(ids, true, true));
+        }
+    }
+
+    // One edge per thread: what it holds -> what it waits for -> who owns that
+    private static void dumpLockGraph(ThreadInfo[] infos) {
+        for (ThreadInfo info : infos) {
+            if (info == null) continue;
+
+            StringBuilder held = new StringBuilder();
+            for (MonitorInfo monitor : info.getLockedMonitors()) {
+                held.append(held.length() == 0 ? "" : ", ").append(monitor);
+            }
+            for (LockInfo lock : info.getLockedSynchronizers()) {
+                held.append(held.length() == 0 ? "" : ", ").append(lock);
+            }
+
+            System.out.println("  \"" + info.getThreadName() + "\" (" + info.getThreadState() + ")"
+                    + " holds [" + held + "]"
+                    + " waits for " + info.getLockName()
+                    + " owned by \"" + info.getLockOwnerName() + "\"");
+
+            StackTraceElement[] stack = info.getStackTrace();
+            if (stack.length > 0) {
+                System.out.println("      at " + stack[0]);
+            }
+        }
+    }
+
+    public void printStats() {
+        long uptime = Math.max(1, System.nanoTime() - startedAt);
+        long n = Math.max(1, checks.get());
+        System.out.printf("Checks: %d every %d ms (avg %.0f us) | Deadlocks: %d | Long-blocked threads: %d | Overhead: %.4f%%%n",
+                checks.get(), periodMillis, checkNanos.get() / 1e3 / n,
+                deadlocksFound.get(), longBlockedFound.get(), 100.0 * checkNanos.get() / uptime);
+    }
+}
+
+// ================= EXECUTION MODE =================
+// How booking requests are run. Booking paths only block in sleeps/I-O
+// and hold no monitors (seat claims are CAS), so virtual threads unmount
+// while waiting instead of pinning their carrier thread.
+enum ExecutionMode {
+    PLATFORM_POOL,
+    VIRTUAL_THREADS;
+
+    ExecutorService create(int platformThreads) {
+        return this == VIRTUAL_THREADS
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(platformThreads);
+    }
+}
+
+// ================= EVENT =================
+// One show: its own seat inventory (an independent shard) and the
+// executor its booking requests run on
+class Event {
+
+    private final String id;
+    private final String name;
+    private final TicketBookingService inventory;
+    private volatile ExecutorService executor;
+    private volatile int dedicatedThreads; // 0 = shared pool
+
+    public Event(String id, String name, TicketBookingService inventory, ExecutorService executor) {
+        this.id = id;
+        this.name = name;
+        this.inventory = inventory;
+        this.executor = executor;
+    }
+
+    public String getId() { return id; }
+    public String getName() { return name; }
+    public TicketBookingService getInventory() { return inventory; }
+    public ExecutorService getExecutor() { return executor; }
+    public boolean isDedicated() { return dedicatedThreads > 0; }
+
+    void useSharedExecutor(ExecutorService shared) {
+        this.executor = shared;
+        this.dedicatedThreads = 0;
+    }
+
+    void useDedicatedExecutor(ExecutorService dedicated, int threads) {
+        this.executor = dedicated;
+        this.dedicatedThreads = threads;
+    }
+
+    @Override
+    public String toString() {
+        return id + " | " + name + " | free " + inventory.countAvailableSeats() + "/" + inventory.getTotalSeats()
+                + " | " + (isDedicated() ? "dedicated (" + dedicatedThreads + " threads)" : "shared pool");
+    }
+}
+
+// ================= EVENT REGISTRY =================
+class EventRegistry {
+
+    private final ConcurrentHashMap<String, Event> events = new ConcurrentHashMap<>();
+    private volatile ExecutorService sharedPool;
+    private volatile ExecutionMode mode;
+    private volatile Path journalDir; // null = events are not journaled
+
+    public EventRegistry(ExecutionMode mode, int platformThreads) {
+        this.mode = mode;
+        this.sharedPool = mode.create(platformThreads);
+    }
+
+    public ExecutionMode getMode() { return mode; }
+
+    // Swaps the shared executor; events on dedicated threads are unaffected
+    public synchronized void switchMode(ExecutionMode newMode, int platformThreads) {
+        ExecutorService previous = sharedPool;
+        sharedPool = newMode.create(platformThreads);
+        mode = newMode;
+        for (Event event : events.values()) {
+            if (!event.isDedicated()) {
+                event.useSharedExecutor(sharedPool);
+            }
+        }
+        previous.shutdown();
+    }
+
+    // Journals every event created from now on and recreates the events
+    // found in dir from their snapshots and journals
+    public void enableJournal(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        journalDir = dir;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*.journal")) {
+            for (Path file : files) {
+                String fileName = file.getFileName().toString();
+                BookingJournal.Header header = BookingJournal.readHeader(file);
+                Event event = createEvent(fileName.substring(0, fileName.length() - ".journal".length()),
+                        header.name(), header.totalSeats());
+                if (event != null) {
+                    TicketBookingService inventory = event.getInventory();
+                    System.out.println("Recovered " + event.getId() + ": "
+                            + (inventory.getTotalSeats() - inventory.countAvailableSeats()) + " seats booked");
+                }
+            }
+        }
+    }
+
+    // Returns null if the id is already taken
+    public synchronized Event createEvent(String id, String name, int seats) {
+        if (events.containsKey(id)) {
+            return null;
+        }
+        TicketBookingService inventory = new TicketBookingService(seats);
+        if (journalDir != null) {
+            try {
+                inventory.attachJournal(new BookingJournal(journalDir, id, name, seats));
+            } catch (IOException e) {
+                System.out.println("WARNING: " + id + " is not journaled: " + e.getMessage());
+            }
+        }
+        Event event = new Event(id, name, inventory, sharedPool);
+        events.put(id, event);
+        return event;
+    }
+
+    public Event getEvent(String id) throws EventNotFoundException {
+        Event event = events.get(id);
+        if (event == null) {
+            throw new EventNotFoundException("No such event: " + id);
+        }
+        return event;
+    }
+
+    public Collection<Event> getEvents() {
+        return events.values();
+    }
+
+    // Moves a hot on-sale event onto its own threads so it cannot crowd
+    // out other events; requests already queued on the old pool still run
+    public void isolate(String id, int threads) throws EventNotFoundException {
+        Event event = getEvent(id);
+        ExecutorService previous = event.getExecutor();
+        event.useDedicatedExecutor(Executors.newFixedThreadPool(threads), threads);
+        if (previous != sharedPool) {
+            previous.shutdown();
+        }
+    }
+
+    // Lets queued requests finish before the journals are closed
+    public void shutdown() {
+        sharedPool.shutdown();
+        for (Event event : events.values()) {
+            if (event.isDedicated()) {
+                event.getExecutor().shutdown();
+            }
+        }
+        try {
+            sharedPool.awaitTermination(5, TimeUnit.SECONDS);
+            for (Event event : events.values()) {
+                event.getExecutor().awaitTermination(5, TimeUnit.SECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Event event : events.values()) {
+            try {
+                event.getInventory().closeJournal();
+            } catch (IOException e) {
+                System.out.println("Could not close journal for " + event.getId() + ": " + e.getMessage());
+            }
+        }
+    }
+}
+
+// ================= BOOKING ROUTER =================
+// Sends each request to its event's shard and executor; events share no
+// locks or seat state, so there is no cross-event contention
+class BookingRouter {
+
+    private final EventRegistry registry;
+
+    public BookingRouter(EventRegistry registry) {
+        this.registry = registry;
+    }
+
+    public void dispatch(String eventId, Consumer<TicketBookingService> request)
+            throws EventNotFoundException {
+        Event event = registry.getEvent(eventId);
+        event.getExecutor().execute(() -> request.accept(event.getInventory()));
+    }
+
+    public CompletableFuture<Ticket> bookAsync(String eventId, int seat, String user) {
+        try {
+            Event event = registry.getEvent(eventId);
+            return event.getInventory().bookAsync(seat, user, event.getExecutor());
+        } catch (EventNotFoundException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    public CompletableFuture<Ticket> cancelAsync(String eventId, int seat, String user) {
+        try {
+            Event event = registry.getEvent(eventId);
+            return event.getInventory().cancelAsync(seat, user, event.getExecutor());
+        } catch (EventNotFoundException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+}
+
+// ================= LOAD GENERATOR =================
+// Ways of taking a seat the generator can compare
+enum BookingStrategy {
+
+    // Book outright
+    DIRECT {
+        boolean attempt(TicketBookingService service, int seat, String user) {
+            try {
+                service.bookSeat(seat, user);
+                return true;
+            } catch (SeatNotAvailableException e) {
+                return false;
+            }
+        }
+    },
+
+    // Hold, then confirm (checkout path)
+    HOLD_CONFIRM {
+        boolean attempt(TicketBookingService service, int seat, String user) {
+            try {
+                long holdId = service.holdSeat(seat, user, TicketBookingService.HOLD_MILLIS);
+                service.confirmHold(seat, holdId);
+                return true;
+            } catch (SeatNotAvailableException e) {
+                return false;
+            }
+        }
+    },
+
+    // Hold, then abandon; seats keep churning so hot seats stay contended
+    HOLD_RELEASE {
+        boolean attempt(TicketBookingService service, int seat, String user) {
+            try {
+                long holdId = service.holdSeat(seat, user, TicketBookingService.HOLD_MILLIS);
+                return service.releaseHold(seat, holdId);
+            } catch (SeatNotAvailableException e) {
+                return false;
+            }
+        }
+    };
+
+    abstract boolean attempt(TicketBookingService service, int seat, String user);
+}
+
+// Picks seats with Zipfian skew: seat k is chosen with weight 1/k^skew, so
+// the front seats are hot. Skew 0 is uniform.
+class ZipfianSeats {
+
+    private final double[] cdf;
+
+    public ZipfianSeats(int seats, double skew) {
+        cdf = new double[seats];
+        double sum = 0;
+        for (int i = 0; i < seats; i++) {
+            sum += 1 / Math.pow(i + 1, skew);
+            cdf[i] = sum;
+        }
+        for (int i = 0; i < seats; i++) {
+            cdf[i] /= sum;
+        }
+    }
+
+    public int next() {
+        int i = Arrays.binarySearch(cdf, ThreadLocalRandom.current().nextDouble());
+        if (i < 0) i = -i - 1;
+        return Math.min(i, cdf.length - 1) + 1;
+    }
+}
+
+class BookingLoadGenerator {
+
+    private final int seats;
+    private final int users;
+    private final int opsPerUser;
+    private final ZipfianSeats picker;
+
+    public BookingLoadGenerator(int seats, int users, int opsPerUser, double skew) {
+        this.seats = seats;
+        this.users = users;
+        this.opsPerUser = opsPerUser;
+        this.picker = new ZipfianSeats(seats, skew);
+    }
+
+    // One warm-up pass is thrown away so the JIT has compiled the hot path
+    public void compare() {
+        run(BookingStrategy.DIRECT, false);
+        for (BookingStrategy strategy : BookingStrategy.values()) {
+            run(strategy, true);
+        }
+    }
+
+    // Each user is a platform thread that books opsPerUser picked seats
+    // against a fresh venue and records the latency of every attempt
+    public void run(BookingStrategy strategy, boolean report) {
+
+        TicketBookingService venue = new TicketBookingService(seats, 0);
+        long[] latencies = new long[users * opsPerUser];
+        AtomicInteger failed = new AtomicInteger();
+        CountDownLatch ready = new CountDownLatch(users);
+        CountDownLatch go = new CountDownLatch(1);
+        Thread[] workers = new Thread[users];
+
+        for (int u = 0; u < users; u++) {
+            int offset = u * opsPerUser;
+            String user = "load" + u;
+            workers[u] = new Thread(() -> {
+                ready.countDown();
+                try { go.await(); } catch (InterruptedException e) { return; }
+
+                int misses = 0;
+                for (int i = 0; i < opsPerUser; i++) {
+                    int seat = picker.next();
+                    long t = System.nanoTime();
+                    if (!strategy.attempt(venue, seat, user)) misses++;
+                    latencies[offset + i] = System.nanoTime() - t;
+                }
+                failed.addAndGet(misses);
+            }, "load-" + u);
+            workers[u].start();
+        }
+
+        try {
+            ready.await();
+            long start = System.nanoTime();
+            go.countDown();
+            for (Thread worker : workers) worker.join();
+            long elapsed = System.nanoTime() - start;
+
+            if (report) {
+                int ops = latencies.length;
+                Arrays.sort(latencies);
+                System.out.printf("%-12s | %,10.0f ops/sec | p50 %6.2f us | p99 %8.2f us | p999 %8.2f us"
+                                + " | failed claims %5.1f%% | CAS retries %,d (%.2f per 1k ops)%n",
+                        strategy, ops / (elapsed / 1e9),
+                        percentile(latencies, 0.50) / 1e3, percentile(latencies, 0.99) / 1e3,
+                        percentile(latencies, 0.999) / 1e3, 100.0 * failed.get() / ops,
+                        venue.getCasRetries(), 1000.0 * venue.getCasRetries() / ops);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * p))];
+    }
+}
+
 // ================= MAIN APPLICATION =================
 public class TicketBookingSystem {
 
     static Scanner sc = new Scanner(System.in);
-    static TicketBookingService service = new TicketBookingService(10);
+    static EventRegistry registry = new EventRegistry(ExecutionMode.PLATFORM_POOL, 3);
+    static BookingRouter router = new BookingRouter(registry);
+    static String currentEvent = "SHOW-1";
+    static DeadlockWatchdog watchdog = new DeadlockWatchdog(1000, 2000);
+
+    static TicketBookingService service() {
+        try {
+            return registry.getEvent(currentEvent).getInventory();
+        } catch (EventNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static void dispatch(Consumer<TicketBookingService> request) {
+        try {
+            router.dispatch(currentEvent, request);
+        } catch (EventNotFoundException e) {
+            System.out.println("ERROR: " + e.getMessage());
+        }
+    }
 
     public static void main(String[] args) {
 
-        ExecutorService executor = Executors.newFixedThreadPool(3);
+        if (Arrays.asList(args).contains("--virtual")) {
+            registry.switchMode(ExecutionMode.VIRTUAL_THREADS, 3);
+        }
+        try {
+            registry.enableJournal(Paths.get("journal"));
+        } catch (IOException e) {
+            System.out.println("WARNING: bookings will not be saved: " + e.getMessage());
+        }
+        registry.createEvent("SHOW-1", "Default Show", 10);
+        watchdog.start();
 
         while (true) {
             System.out.println("\n===== MULTITHREADED TICKET BOOKING =====");
+            System.out.println("Current Event: " + currentEvent + " | Mode: " + registry.getMode());
             System.out.println("1. Book Seat");
             System.out.println("2. Cancel Seat");
             System.out.println("3. Show Available Seats");
             System.out.println("4. Show All Bookings");
             System.out.println("5. Simulate Race Condition");
             System.out.println("6. Simulate Deadlock");
-            System.out.println("7. Exit");
+            System.out.println("7. Benchmark Booking Scalability");
+            System.out.println("8. Find Contiguous Seats");
+            System.out.println("9. Book Group Block");
+            System.out.println("10. Create Event");
+            System.out.println("11. Switch Event");
+            System.out.println("12. List Events");
+            System.out.println("13. Isolate Hot Event");
+            System.out.println("14. Switch Execution Mode");
+            System.out.println("15. Load Test: Platform vs Virtual Threads");
+            System.out.println("16. Hold Seat");
+            System.out.println("17. Confirm Hold");
+            System.out.println("18. Release Hold");
+            System.out.println("19. Load Generator (Zipfian Hot Seats)");
+            System.out.println("20. Watchdog Stats");
+            System.out.println("21. Benchmark Journaled Bookings");
+            System.out.println("22. Exit");
 
             int choice = sc.nextInt();
 
@@ -160,13 +1704,8 @@ public class TicketBookingSystem {
                     System.out.print("Enter Username: ");
                     String user = sc.next();
 
-                    executor.execute(() -> {
-                        try {
-                            service.bookSeat(seat, user);
-                        } catch (Exception e) {
-                            System.out.println("ERROR: " + e.getMessage());
-                        }
-                    });
+                    router.bookAsync(currentEvent, seat, user).whenComplete((ticket, e) ->
+                            System.out.println(e == null ? "SUCCESS: " + ticket : "ERROR: " + reason(e)));
                     break;
 
                 case 2:
@@ -175,21 +1714,21 @@ public class TicketBookingSystem {
                     System.out.print("Enter Username: ");
                     String cancelUser = sc.next();
 
-                    executor.execute(() ->
-                            service.cancelSeat(cancelSeat, cancelUser)
-                    );
+                    router.cancelAsync(currentEvent, cancelSeat, cancelUser).whenComplete((ticket, e) ->
+                            System.out.println(e == null ? "CANCELLED: Seat " + cancelSeat + " by " + cancelUser
+                                    : "ERROR: " + reason(e)));
                     break;
 
                 case 3:
-                    service.showAvailableSeats();
+                    service().showAvailableSeats();
                     break;
 
                 case 4:
-                    service.showAllBookings();
+                    service().showAllBookings();
                     break;
 
                 case 5:
-                    simulateRaceCondition(executor);
+                    simulateRaceCondition();
                     break;
 
                 case 6:
@@ -197,26 +1736,314 @@ public class TicketBookingSystem {
                     break;
 
                 case 7:
-                    executor.shutdown();
+                    benchmarkScalability();
+                    break;
+
+                case 8:
+                    System.out.print("Number of seats: ");
+                    int count = sc.nextInt();
+                    int first = service().findContiguousSeats(count);
+                    System.out.println(first < 0
+                            ? "No " + count + " contiguous seats available."
+                            : "Seats " + first + "-" + (first + count - 1) + " are free.");
+                    break;
+
+                case 9:
+                    System.out.print("Group Size: ");
+                    int groupSize = sc.nextInt();
+                    System.out.print("Enter Username: ");
+                    String groupUser = sc.next();
+                    System.out.println("Preference: 1. Front  2. Center  3. Back");
+                    int pref = sc.nextInt();
+                    SeatPreference preference = pref == 1 ? SeatPreference.FRONT
+                            : pref == 3 ? SeatPreference.BACK : SeatPreference.CENTER;
+
+                    dispatch(service -> {
+                        try {
+                            List<Ticket> tickets = service.bookBlock(groupSize, groupUser, preference);
+                            System.out.println("SUCCESS: " + groupUser + " booked seats "
+                                    + tickets.get(0).getSeatNumber() + "-"
+                                    + tickets.get(tickets.size() - 1).getSeatNumber());
+                        } catch (Exception e) {
+                            System.out.println("ERROR: " + e.getMessage());
+                        }
+                    });
+                    break;
+
+                case 10:
+                    System.out.print("Event ID: ");
+                    String eventId = sc.next();
+                    sc.nextLine();
+                    System.out.print("Event Name: ");
+                    String eventName = sc.nextLine();
+                    System.out.print("Total Seats: ");
+                    int eventSeats = sc.nextInt();
+
+                    if (registry.createEvent(eventId, eventName, eventSeats) == null) {
+                        System.out.println("Event ID already exists!");
+                    } else {
+                        currentEvent = eventId;
+                        System.out.println("Event created and selected.");
+                    }
+                    break;
+
+                case 11:
+                    System.out.print("Event ID: ");
+                    String switchTo = sc.next();
+                    try {
+                        registry.getEvent(switchTo);
+                        currentEvent = switchTo;
+                    } catch (EventNotFoundException e) {
+                        System.out.println("ERROR: " + e.getMessage());
+                    }
+                    break;
+
+                case 12:
+                    registry.getEvents().forEach(System.out::println);
+                    break;
+
+                case 13:
+                    System.out.print("Event ID: ");
+                    String hotEvent = sc.next();
+                    System.out.print("Dedicated Threads: ");
+                    int threads = sc.nextInt();
+                    try {
+                        registry.isolate(hotEvent, threads);
+                        System.out.println(hotEvent + " now runs on " + threads + " dedicated threads.");
+                    } catch (EventNotFoundException e) {
+                        System.out.println("ERROR: " + e.getMessage());
+                    }
+                    break;
+
+                case 14:
+                    ExecutionMode next = registry.getMode() == ExecutionMode.PLATFORM_POOL
+                            ? ExecutionMode.VIRTUAL_THREADS : ExecutionMode.PLATFORM_POOL;
+                    registry.switchMode(next, 3);
+                    System.out.println("Execution mode: " + next);
+                    break;
+
+                case 15:
+                    System.out.print("Simulated Users: ");
+                    int users = sc.nextInt();
+                    if (users <= 0) {
+                        System.out.println("Users must be positive.");
+                        break;
+                    }
+                    loadTest(ExecutionMode.PLATFORM_POOL, users);
+                    loadTest(ExecutionMode.VIRTUAL_THREADS, users);
+                    break;
+
+                case 16:
+                    System.out.print("Enter Seat Number: ");
+                    int holdSeat = sc.nextInt();
+                    System.out.print("Enter Username: ");
+                    String holdUser = sc.next();
+                    try {
+                        long holdId = service().holdSeat(holdSeat, holdUser, TicketBookingService.HOLD_MILLIS);
+                        System.out.println("HELD: seat " + holdSeat + " for " + holdUser
+                                + " | hold id " + holdId + " | expires in 2 minutes");
+                    } catch (SeatNotAvailableException e) {
+                        System.out.println("ERROR: " + e.getMessage());
+                    }
+                    break;
+
+                case 17:
+                    System.out.print("Enter Seat Number: ");
+                    int confirmSeat = sc.nextInt();
+                    System.out.print("Enter Hold ID: ");
+                    long confirmId = sc.nextLong();
+                    try {
+                        System.out.println("SUCCESS: " + service().confirmHold(confirmSeat, confirmId));
+                    } catch (SeatNotAvailableException e) {
+                        System.out.println("ERROR: " + e.getMessage());
+                    }
+                    break;
+
+                case 18:
+                    System.out.print("Enter Seat Number: ");
+                    int releaseSeat = sc.nextInt();
+                    System.out.print("Enter Hold ID: ");
+                    long releaseId = sc.nextLong();
+                    System.out.println(service().releaseHold(releaseSeat, releaseId)
+                            ? "RELEASED: seat " + releaseSeat
+                            : "Hold expired or not found.");
+                    break;
+
+                case 19:
+                    System.out.print("Seats: ");
+                    int loadSeats = sc.nextInt();
+                    System.out.print("Concurrent Users: ");
+                    int loadUsers = sc.nextInt();
+                    System.out.print("Attempts per User: ");
+                    int loadOps = sc.nextInt();
+                    System.out.print("Hot-Seat Skew (0 = uniform, 1 = Zipf): ");
+                    double skew = sc.nextDouble();
+                    if (loadSeats <= 0 || loadUsers <= 0 || loadOps <= 0 || skew < 0) {
+                        System.out.println("All values must be positive.");
+                        break;
+                    }
+                    new BookingLoadGenerator(loadSeats, loadUsers, loadOps, skew).compare();
+                    break;
+
+                case 20:
+                    watchdog.printStats();
+                    break;
+
+                case 21:
+                    benchmarkJournal();
+                    break;
+
+                case 22:
+                    watchdog.shutdown();
+                    registry.shutdown();
                     System.exit(0);
             }
         }
     }
 
+    // Typed failure behind a CompletionException
+    static String reason(Throwable failure) {
+        Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+                ? failure.getCause() : failure;
+        return cause.getMessage();
+    }
+
     // RACE CONDITION SIMULATION
-    static void simulateRaceCondition(ExecutorService executor) {
+    static void simulateRaceCondition() {
 
         System.out.println("Simulating multiple users booking same seat...");
 
-        executor.execute(() -> {
-            try { service.bookSeat(5, "UserA"); }
-            catch (Exception e) { System.out.println(e.getMessage()); }
-        });
+        for (String user : new String[]{"UserA", "UserB"}) {
+            router.bookAsync(currentEvent, 5, user).whenComplete((ticket, e) ->
+                    System.out.println(e == null ? "SUCCESS: " + user + " booked seat 5" : user + ": " + reason(e)));
+        }
+    }
 
-        executor.execute(() -> {
-            try { service.bookSeat(5, "UserB"); }
-            catch (Exception e) { System.out.println(e.getMessage()); }
-        });
+    // SCALABILITY BENCHMARK
+    // Books distinct seats with no processing delay at increasing thread
+    // counts; with per-seat claims throughput should grow with cores.
+    static void benchmarkScalability() {
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        int seatsPerRun = 200_000;
+
+        System.out.println("Cores: " + cores);
+
+        for (int threads = 1; threads <= cores * 2; threads *= 2) {
+
+            TicketBookingService bench = new TicketBookingService(seatsPerRun, 0);
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            AtomicInteger next = new AtomicInteger(1);
+            CountDownLatch done = new CountDownLatch(threads);
+
+            long start = System.nanoTime();
+            for (int t = 0; t < threads; t++) {
+                pool.execute(() -> {
+                    int seat;
+                    while ((seat = next.getAndIncrement()) <= seatsPerRun) {
+                        try { bench.bookSeat(seat, "bench"); }
+                        catch (SeatNotAvailableException e) { System.out.println(e.getMessage()); }
+                    }
+                    done.countDown();
+                });
+            }
+
+            try { done.await(); } catch (InterruptedException e) { return; }
+            long elapsed = System.nanoTime() - start;
+            pool.shutdown();
+
+            System.out.printf("Threads: %2d | %,.0f bookings/sec%n",
+                    threads, seatsPerRun / (elapsed / 1e9));
+        }
     }
-}
 
+    // JOURNAL BENCHMARK
+    // Books distinct seats from many threads against a journaled venue in a
+    // temporary directory; group commit turns them into few forces.
+    static void benchmarkJournal() {
+
+        int seats = 200_000;
+        int threads = 64;
+        Path dir = null;
+
+        try {
+            dir = Files.createTempDirectory("journal-bench");
+            TicketBookingService venue = new TicketBookingService(seats, 0);
+            venue.attachJournal(new BookingJournal(dir, "BENCH", "Benchmark", seats));
+
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            AtomicInteger next = new AtomicInteger(1);
+            CountDownLatch done = new CountDownLatch(threads);
+
+            long start = System.nanoTime();
+            for (int t = 0; t < threads; t++) {
+                pool.execute(() -> {
+                    int seat;
+                    while ((seat = next.getAndIncrement()) <= seats) {
+                        try { venue.bookSeat(seat, "bench"); }
+                        catch (SeatNotAvailableException e) { System.out.println(e.getMessage()); }
+                    }
+                    done.countDown();
+                });
+            }
+            done.await();
+            long elapsed = System.nanoTime() - start;
+            pool.shutdown();
+
+            System.out.printf("Threads: %d | %,.0f durable bookings/sec | %s%n",
+                    threads, seats / (elapsed / 1e9), venue.getJournal().stats());
+            venue.closeJournal();
+        } catch (IOException e) {
+            System.out.println("Benchmark failed: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (dir != null) {
+                try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+                    for (Path file : files) Files.delete(file);
+                    Files.delete(dir);
+                } catch (IOException e) {
+                    System.out.println("Could not remove " + dir);
+                }
+            }
+        }
+    }
+
+    // LOAD GENERATOR
+    // Every simulated user books its own seat; each booking blocks for a
+    // 10 ms processing delay, like a payment or I/O call would.
+    static void loadTest(ExecutionMode mode, int users) {
+
+        int platformThreads = 200;
+        TicketBookingService venue = new TicketBookingService(users, 10);
+        long[] latencies = new long[users];
+        AtomicInteger failures = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(users);
+        ExecutorService executor = mode.create(platformThreads);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < users; i++) {
+            int seat = i + 1;
+            long submitted = System.nanoTime();
+            executor.execute(() -> {
+                try {
+                    venue.bookSeat(seat, "user" + seat);
+                } catch (SeatNotAvailableException e) {
+                    failures.incrementAndGet();
+                }
+                latencies[seat - 1] = System.nanoTime() - submitted;
+                done.countDown();
+            });
+        }
+
+        try { done.await(); } catch (InterruptedException e) { return; }
+        long elapsed = System.nanoTime() - start;
+        executor.shutdown();
+
+        Arrays.sort(latencies);
+        System.out.printf("%s%s: %d users in %.0f ms | %,.0f bookings/sec | p50 %.0f ms | p99 %.0f ms | failed %d%n",
+                mode, mode == ExecutionMode.PLATFORM_POOL ? " (" + platformThreads + " threads)" : "",
+                users, elapsed / 1e6, users / (elapsed / 1e9),
+                latencies[users / 2] / 1e6, latencies[(int) (users * 0.99)] / 1e6, failures.get());
+    }
+}
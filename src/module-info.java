@@ -5,4 +5,5 @@
  * 
  */
 module Projects {
+	requires java.management;
 }
\ No newline at end of file